@@ -12,6 +12,16 @@ public class BotProperties {
     private String model = "gemma3:4b";
     private int maxTokens = 128;
     private double temperature = 0.7;
+    private boolean stream = true;
+    private int maxConcurrentReplies = 16;
+    private int requestTimeoutSeconds = 60;
+    private int maxPendingReplies = 64;
+    private int replyDeadlineSeconds = 30;
+    private int maxCoalescedMessages = 5;
+    private boolean incrementalContext = true;
+    private String keepAlive = "30m";
+    private int candidates = 1;
+    private int candidateDeadlineMs = 5000;
 
     private String name = "Mia";
     private int age = 23;
@@ -64,6 +74,86 @@ public class BotProperties {
         this.temperature = temperature;
     }
 
+    public boolean isStream() {
+        return stream;
+    }
+
+    public void setStream(boolean stream) {
+        this.stream = stream;
+    }
+
+    public int getMaxConcurrentReplies() {
+        return maxConcurrentReplies;
+    }
+
+    public void setMaxConcurrentReplies(int maxConcurrentReplies) {
+        this.maxConcurrentReplies = maxConcurrentReplies;
+    }
+
+    public int getRequestTimeoutSeconds() {
+        return requestTimeoutSeconds;
+    }
+
+    public void setRequestTimeoutSeconds(int requestTimeoutSeconds) {
+        this.requestTimeoutSeconds = requestTimeoutSeconds;
+    }
+
+    public int getMaxPendingReplies() {
+        return maxPendingReplies;
+    }
+
+    public void setMaxPendingReplies(int maxPendingReplies) {
+        this.maxPendingReplies = maxPendingReplies;
+    }
+
+    public int getReplyDeadlineSeconds() {
+        return replyDeadlineSeconds;
+    }
+
+    public void setReplyDeadlineSeconds(int replyDeadlineSeconds) {
+        this.replyDeadlineSeconds = replyDeadlineSeconds;
+    }
+
+    public int getMaxCoalescedMessages() {
+        return maxCoalescedMessages;
+    }
+
+    public void setMaxCoalescedMessages(int maxCoalescedMessages) {
+        this.maxCoalescedMessages = maxCoalescedMessages;
+    }
+
+    public boolean isIncrementalContext() {
+        return incrementalContext;
+    }
+
+    public void setIncrementalContext(boolean incrementalContext) {
+        this.incrementalContext = incrementalContext;
+    }
+
+    public String getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(String keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(int candidates) {
+        this.candidates = candidates;
+    }
+
+    public int getCandidateDeadlineMs() {
+        return candidateDeadlineMs;
+    }
+
+    public void setCandidateDeadlineMs(int candidateDeadlineMs) {
+        this.candidateDeadlineMs = candidateDeadlineMs;
+    }
+
     public String getName() {
         return name;
     }
@@ -0,0 +1,190 @@
+package com.srt.randomchat.bot;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs bot replies one generation per session at a time. Messages that arrive while a reply is
+ * being generated are folded into the next prompt. Every generation has a deadline, and
+ * {@link #cancel} aborts the session's work as soon as it leaves its bot room. Admission is capped
+ * globally, so under overload new generations are refused instead of queueing without bound.
+ * Generations are started, and listeners called, only after the session's lock is released.
+ */
+@Component
+public class BotScheduler {
+
+    /** {@code DROPPED}: the session was cancelled while the message was being scheduled. */
+    public enum Admission { STARTED, COALESCED, REJECTED, DROPPED }
+
+    public interface Listener {
+        void onChunk(String chunk);
+
+        void onReply(String reply);
+
+        /** The bot could not produce a reply. */
+        void onFailure();
+
+        /** The reply missed its deadline, or a folded follow-up could not be admitted. */
+        void onBusy();
+    }
+
+    private static final class SessionQueue {
+        private final List<String> pending = new ArrayList<>();
+        private Listener listener;
+        private BotTurn running;
+        private boolean cancelled;
+    }
+
+    private final BotService botService;
+    private final BotProperties properties;
+    private final ConcurrentHashMap<String, SessionQueue> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public BotScheduler(BotService botService, BotProperties properties) {
+        this.botService = botService;
+        this.properties = properties;
+    }
+
+    public Admission schedule(String sessionId, String userMessage, Listener listener) {
+        SessionQueue queue = sessions.computeIfAbsent(sessionId, id -> new SessionQueue());
+        BotTurn turn;
+        synchronized (queue) {
+            // Cancelled after the lookup: the message belongs to the conversation that just ended.
+            if (queue.cancelled) {
+                return Admission.DROPPED;
+            }
+            if (queue.running != null) {
+                if (queue.pending.size() >= Math.max(1, properties.getMaxCoalescedMessages())) {
+                    queue.pending.removeFirst();
+                }
+                queue.pending.add(userMessage);
+                queue.listener = listener;
+                coalesced.increment();
+                return Admission.COALESCED;
+            }
+            if (!admit()) {
+                return Admission.REJECTED;
+            }
+            turn = new BotTurn();
+            queue.running = turn;
+        }
+        start(sessionId, queue, turn, userMessage, listener);
+        return Admission.STARTED;
+    }
+
+    /**
+     * Drops the session's folded messages and aborts its running generation without notifying
+     * its listener. The session's Ollama context is dropped too.
+     */
+    public void cancel(String sessionId) {
+        SessionQueue queue = sessions.remove(sessionId);
+        if (queue != null) {
+            synchronized (queue) {
+                queue.cancelled = true;
+                queue.pending.clear();
+                queue.listener = null;
+                if (queue.running != null) queue.running.cancel();
+            }
+        }
+        // After the turn is cancelled, so a reply committed just before cannot leave its context behind.
+        botService.forgetContext(sessionId);
+    }
+
+    public int getAdmitted() {
+        return admitted.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    private boolean admit() {
+        int limit = Math.max(1, properties.getMaxPendingReplies());
+        while (true) {
+            int current = admitted.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (admitted.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    // Called without the queue's lock: a reply that completes synchronously runs finish, and with it
+    // the listener, on this thread. A cancel that lands before this call has already cancelled the turn.
+    private void start(String sessionId, SessionQueue queue, BotTurn turn, String userMessage, Listener listener) {
+        botService.generateReply(sessionId, userMessage, chunk -> {
+                    if (!turn.isCancelled()) listener.onChunk(chunk);
+                }, turn)
+                .orTimeout(Math.max(1, properties.getReplyDeadlineSeconds()), TimeUnit.SECONDS)
+                .whenComplete((reply, error) -> finish(sessionId, queue, turn, listener, reply, error));
+    }
+
+    private void finish(String sessionId, SessionQueue queue, BotTurn turn, Listener listener,
+                        String reply, Throwable error) {
+        admitted.decrementAndGet();
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        boolean deadlineMissed = cause instanceof TimeoutException;
+        if (deadlineMissed) {
+            timedOut.increment();
+            turn.cancel();
+        } else if (turn.isCancelled() || cause instanceof CancellationException) {
+            synchronized (queue) {
+                if (queue.running == turn) queue.running = null;
+            }
+            return;
+        }
+
+        if (deadlineMissed) {
+            listener.onBusy();
+        } else if (reply == null) {
+            listener.onFailure();
+        } else {
+            listener.onReply(reply);
+        }
+
+        String next = null;
+        Listener nextListener = null;
+        BotTurn nextTurn = null;
+        synchronized (queue) {
+            queue.running = null;
+            if (reply == null && !deadlineMissed) {
+                queue.pending.clear();
+            }
+            if (!queue.pending.isEmpty() && !queue.cancelled) {
+                next = String.join("\n", queue.pending);
+                nextListener = queue.listener;
+                queue.pending.clear();
+                if (admit()) {
+                    nextTurn = new BotTurn();
+                    queue.running = nextTurn;
+                }
+            }
+        }
+        if (nextTurn != null) {
+            start(sessionId, queue, nextTurn, next, nextListener);
+        } else if (next != null) {
+            nextListener.onBusy();
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package com.srt.randomchat.bot;
 
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class BotService {
 
+    private static final int PERFECT_SCORE = 3;
+
+    private record Request(String system, String prompt, int[] context) {
+    }
+
+    private record ChatContext(int[] tokens, int turns) {
+    }
+
     private final BotProperties properties;
     private final OllamaClient ollamaClient;
     private final MemoryManager memoryManager;
     private final PromptBuilder promptBuilder;
     private final ConcurrentHashMap<String, AtomicInteger> noQuestionTurns = new ConcurrentHashMap<>();
     private final java.util.concurrent.atomic.AtomicLong unavailableUntilMs = new java.util.concurrent.atomic.AtomicLong(0);
+    private final ConcurrencyLimit replyLimit;
+    private final ConcurrentHashMap<String, ChatContext> contexts = new ConcurrentHashMap<>();
 
     public BotService(BotProperties properties,
                       OllamaClient ollamaClient,
@@ -25,6 +37,7 @@ public class BotService {
         this.ollamaClient = ollamaClient;
         this.memoryManager = memoryManager;
         this.promptBuilder = promptBuilder;
+        this.replyLimit = new ConcurrencyLimit(properties.getMaxConcurrentReplies());
     }
 
     public boolean isEnabled() {
@@ -46,52 +59,171 @@ public class BotService {
         return reply == null ? "(no reply)" : reply;
     }
 
-    @Async("botExecutor")
     public CompletableFuture<String> generateReply(String sessionId, String userMessage) {
+        return generateReply(sessionId, userMessage, null);
+    }
+
+    /**
+     * Like {@link #generateReply(String, String)}, but with {@code randomchat.bot.stream} the first
+     * attempt is streamed and handed to {@code onChunk} in word-boundary chunks. The completed value
+     * is the committed reply, which may differ from the streamed text if a retry replaced it.
+     * At most {@code max-concurrent-replies} replies are generated at once; the rest wait their turn.
+     */
+    public CompletableFuture<String> generateReply(String sessionId, String userMessage, Consumer<String> onChunk) {
+        return generateReply(sessionId, userMessage, onChunk, new BotTurn());
+    }
+
+    CompletableFuture<String> generateReply(String sessionId, String userMessage, Consumer<String> onChunk, BotTurn turn) {
         if (!properties.isEnabled()) {
             return CompletableFuture.completedFuture(null);
         }
+        return replyLimit.submit(() -> turn.isCancelled()
+                ? CompletableFuture.completedFuture(null)
+                : reply(sessionId, userMessage, onChunk, turn));
+    }
 
+    public int getRepliesInFlight() {
+        return replyLimit.inFlight();
+    }
+
+    public int getRepliesQueued() {
+        return replyLimit.queued();
+    }
+
+    /**
+     * Drops the Ollama context kept for the session, so its next reply is seeded from memory.
+     */
+    public void forgetContext(String sessionId) {
+        contexts.remove(sessionId);
+    }
+
+    private CompletableFuture<String> reply(String sessionId, String userMessage, Consumer<String> onChunk, BotTurn turn) {
         boolean forceQuestion = shouldForceQuestion(sessionId, userMessage);
-        String prompt = forceQuestion
-                ? promptBuilder.buildPromptWithQuestion(sessionId, userMessage)
-                : promptBuilder.buildPrompt(sessionId, userMessage);
-        String reply = ollamaClient.generate(prompt);
+        Request request = request(sessionId, userMessage, forceQuestion);
+        if (properties.getCandidates() > 1) {
+            return candidates(sessionId, request, onChunk, forceQuestion, turn)
+                    .thenApply(generation -> commit(sessionId, userMessage, generation, turn));
+        }
 
-        if (reply == null) {
-            markUnavailable();
-            return CompletableFuture.completedFuture(null);
+        return turn.track(firstAttempt(request, onChunk))
+                .thenCompose(generation -> {
+                    if (generation == null || turn.isCancelled()
+                            || !shouldRegenerateForSimilarity(sessionId, generation.text())) {
+                        return CompletableFuture.completedFuture(generation);
+                    }
+                    return retry(turn, request, generation);
+                })
+                .thenCompose(generation -> {
+                    if (generation == null || turn.isCancelled() || !forceQuestion || generation.text().contains("?")) {
+                        return CompletableFuture.completedFuture(generation);
+                    }
+                    return retry(turn, request(sessionId, userMessage, true), generation);
+                })
+                .thenApply(generation -> commit(sessionId, userMessage, generation, turn));
+    }
+
+    private CompletableFuture<OllamaClient.Generation> firstAttempt(Request request, Consumer<String> onChunk) {
+        if (onChunk == null || !properties.isStream()) {
+            return ollamaClient.generateAsync(request.system(), request.prompt(), request.context());
         }
+        WordChunker chunker = new WordChunker(onChunk);
+        CompletableFuture<OllamaClient.Generation> stream =
+                ollamaClient.generateStreamAsync(request.system(), request.prompt(), request.context(), chunker);
+        CompletableFuture<OllamaClient.Generation> finished = stream.thenApply(generation -> {
+            chunker.finish();
+            return generation;
+        });
+        // Cancelling a dependent stage does not reach the exchange on its own.
+        finished.whenComplete((generation, error) -> {
+            if (finished.isCancelled()) stream.cancel(true);
+        });
+        return finished;
+    }
+
+    /**
+     * Requests {@code candidates} completions at once and keeps the one that best satisfies the
+     * rules the sequential path retries for. Only the first candidate is streamed.
+     */
+    private CompletableFuture<OllamaClient.Generation> candidates(String sessionId, Request request, Consumer<String> onChunk,
+                                                                  boolean forceQuestion, BotTurn turn) {
+        List<CompletableFuture<OllamaClient.Generation>> candidates = new ArrayList<>();
+        candidates.add(firstAttempt(request, onChunk));
+        for (int i = 1; i < properties.getCandidates(); i++) {
+            candidates.add(ollamaClient.generateAsync(request.system(), request.prompt(), request.context()));
+        }
+        return turn.track(CandidateRace.race(
+                candidates,
+                generation -> score(sessionId, generation.text(), forceQuestion),
+                PERFECT_SCORE,
+                properties.getCandidateDeadlineMs()));
+    }
 
-        if (shouldRegenerateForSimilarity(sessionId, reply)) {
-            String retryPrompt = forceQuestion
+    // A missing question outweighs repeating the last reply, as in the sequential path where the question retry runs last.
+    private int score(String sessionId, String reply, boolean forceQuestion) {
+        int score = 0;
+        if (!forceQuestion || reply.contains("?")) score += 2;
+        if (!shouldRegenerateForSimilarity(sessionId, reply)) score += 1;
+        return score;
+    }
+
+    private Request request(String sessionId, String userMessage, boolean forceQuestion) {
+        if (!properties.isIncrementalContext()) {
+            String prompt = forceQuestion
                     ? promptBuilder.buildPromptWithQuestion(sessionId, userMessage)
                     : promptBuilder.buildPrompt(sessionId, userMessage);
-            String retryReply = ollamaClient.generate(retryPrompt);
-            if (retryReply != null && !retryReply.isBlank()) {
-                reply = retryReply;
-            }
+            return new Request(null, prompt, null);
         }
+        ChatContext context = contexts.get(sessionId);
+        boolean seed = context == null || context.turns() >= reseedTurns();
+        return new Request(
+                promptBuilder.systemPrompt(sessionId),
+                promptBuilder.turnPrompt(sessionId, userMessage, forceQuestion, seed),
+                seed ? null : context.tokens()
+        );
+    }
 
-        if (forceQuestion && (reply == null || !reply.contains("?"))) {
-            String retryPrompt = promptBuilder.buildPromptWithQuestion(sessionId, userMessage);
-            String retryReply = ollamaClient.generate(retryPrompt);
-            if (retryReply != null && !retryReply.isBlank()) {
-                reply = retryReply;
-            }
-        }
+    // The context grows with every turn; reseeding from memory bounds it to what the full prompt would hold.
+    private int reseedTurns() {
+        return Math.max(1, properties.getMemoryLimit() / 2);
+    }
 
-        if (reply == null || reply.isBlank()) {
+    private CompletableFuture<OllamaClient.Generation> retry(BotTurn turn, Request request, OllamaClient.Generation fallback) {
+        return turn.track(ollamaClient.generateAsync(request.system(), request.prompt(), request.context()))
+                .thenApply(retried -> retried != null && !retried.text().isBlank() ? retried : fallback);
+    }
+
+    private String commit(String sessionId, String userMessage, OllamaClient.Generation generation, BotTurn turn) {
+        // A cancelled turn must not touch memory: the session has moved on.
+        if (turn.isCancelled()) {
+            return null;
+        }
+        if (generation == null || generation.text().isBlank()) {
             markUnavailable();
-            return CompletableFuture.completedFuture(null);
+            return null;
         }
 
-        reply = promptBuilder.trimToShortReply(reply);
+        String reply = promptBuilder.trimToShortReply(generation.text());
         memoryManager.append(sessionId, "user", userMessage);
         memoryManager.append(sessionId, "bot", reply);
         updateQuestionCounter(sessionId, reply);
+        if (properties.isIncrementalContext()) {
+            // The context ends with the reply as generated. If the user was shown a trimmed reply,
+            // the next turn is seeded from memory instead, so the model's history matches the room.
+            storeContext(sessionId, reply.equals(generation.text()) ? generation.context() : null);
+        }
 
-        return CompletableFuture.completedFuture(reply);
+        return reply;
+    }
+
+    private void storeContext(String sessionId, int[] tokens) {
+        if (tokens == null || tokens.length == 0) {
+            contexts.remove(sessionId);
+            return;
+        }
+        contexts.compute(sessionId, (id, previous) -> {
+            int turns = previous == null || previous.turns() >= reseedTurns() ? 1 : previous.turns() + 1;
+            return new ChatContext(tokens, turns);
+        });
     }
 
     private boolean shouldRegenerateForSimilarity(String sessionId, String reply) {
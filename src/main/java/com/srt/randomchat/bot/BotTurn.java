@@ -0,0 +1,29 @@
+package com.srt.randomchat.bot;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One generation for one session. Tracks the Ollama request currently in flight, so cancelling
+ * the turn also aborts the HTTP exchange, and tells later stages not to commit anything.
+ */
+final class BotTurn {
+
+    private volatile boolean cancelled;
+    private volatile CompletableFuture<?> pending;
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+        CompletableFuture<?> current = pending;
+        if (current != null) current.cancel(true);
+    }
+
+    <T> CompletableFuture<T> track(CompletableFuture<T> request) {
+        pending = request;
+        if (cancelled) request.cancel(true);
+        return request;
+    }
+}
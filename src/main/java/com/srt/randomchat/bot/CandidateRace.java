@@ -0,0 +1,78 @@
+package com.srt.randomchat.bot;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Picks one of several concurrently generated candidates. The race ends as soon as a candidate
+ * reaches {@code perfectScore}, when every candidate has finished, or at the deadline if at least
+ * one usable candidate has arrived by then; otherwise the first usable one after the deadline wins.
+ * The highest score wins and the earliest arrival breaks ties. Null results and failures are not
+ * usable. Candidates still running when the race ends, or when its future is cancelled, are
+ * cancelled.
+ */
+final class CandidateRace<T> {
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final List<CompletableFuture<T>> candidates;
+    private final ToIntFunction<T> score;
+    private final int perfectScore;
+    private int pending;
+    private boolean deadlinePassed;
+    private T best;
+    private int bestScore;
+
+    private CandidateRace(List<CompletableFuture<T>> candidates, ToIntFunction<T> score, int perfectScore) {
+        this.candidates = candidates;
+        this.score = score;
+        this.perfectScore = perfectScore;
+        this.pending = candidates.size();
+    }
+
+    static <T> CompletableFuture<T> race(List<CompletableFuture<T>> candidates, ToIntFunction<T> score,
+                                         int perfectScore, long deadlineMs) {
+        CandidateRace<T> race = new CandidateRace<>(List.copyOf(candidates), score, perfectScore);
+        if (candidates.isEmpty()) {
+            race.result.complete(null);
+            return race.result;
+        }
+        race.result.whenComplete((value, error) -> race.candidates.forEach(candidate -> candidate.cancel(true)));
+        for (CompletableFuture<T> candidate : race.candidates) {
+            candidate.whenComplete((value, error) -> race.arrived(error == null ? value : null));
+        }
+        if (!race.result.isDone()) {
+            CompletableFuture.delayedExecutor(Math.max(0, deadlineMs), TimeUnit.MILLISECONDS).execute(race::deadline);
+        }
+        return race.result;
+    }
+
+    private void arrived(T value) {
+        boolean finished;
+        T winner;
+        synchronized (this) {
+            pending--;
+            if (value != null) {
+                int valueScore = score.applyAsInt(value);
+                if (best == null || valueScore > bestScore) {
+                    best = value;
+                    bestScore = valueScore;
+                }
+            }
+            finished = pending <= 0 || best != null && (deadlinePassed || bestScore >= perfectScore);
+            winner = best;
+        }
+        // Completed outside the lock: dependent stages run on this thread.
+        if (finished) result.complete(winner);
+    }
+
+    private void deadline() {
+        T winner;
+        synchronized (this) {
+            deadlinePassed = true;
+            winner = best;
+        }
+        if (winner != null) result.complete(winner);
+    }
+}
@@ -0,0 +1,73 @@
+package com.srt.randomchat.bot;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many asynchronous tasks are in flight at once without holding a thread per waiter.
+ * Tasks over the cap wait in FIFO order and are started by whichever completion frees a permit.
+ */
+final class ConcurrencyLimit {
+
+    private final int limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+    ConcurrencyLimit(int limit) {
+        this.limit = Math.max(1, limit);
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        queued.incrementAndGet();
+        waiting.add(() -> start(task, result));
+        drain();
+        return result;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        CompletableFuture<T> running;
+        try {
+            running = task.get();
+        } catch (RuntimeException ex) {
+            running = CompletableFuture.failedFuture(ex);
+        }
+        running.whenComplete((value, error) -> {
+            inFlight.decrementAndGet();
+            drain();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    private void drain() {
+        while (!waiting.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= limit) return;
+            if (!inFlight.compareAndSet(current, current + 1)) continue;
+            Runnable next = waiting.poll();
+            if (next == null) {
+                // Another drain took it; give the permit back and look again.
+                inFlight.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            next.run();
+        }
+    }
+}
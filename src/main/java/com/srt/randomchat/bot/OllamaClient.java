@@ -1,46 +1,230 @@
 package com.srt.randomchat.bot;
 
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
-import org.springframework.web.client.RestClientException;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Ollama {@code /api/generate} over the JDK's asynchronous HTTP client. Requests return
+ * futures and streamed bodies are consumed by a line subscriber, so no thread waits on a
+ * generation. Failures complete the future with null; cancelling a returned future aborts the
+ * exchange.
+ */
 @Component
 public class OllamaClient {
 
+    /**
+     * A completed generation. {@code context} encodes the conversation including this reply and
+     * can be sent with the next request instead of the transcript.
+     */
+    public record Generation(String text, int[] context, int promptTokens) {
+    }
+
+    public record Stats(long requests,
+                        long averagePromptTokens,
+                        long lastPromptTokens,
+                        long averageLatencyMicros,
+                        long streams,
+                        long averageFirstTokenMicros,
+                        long lastFirstTokenMicros) {
+    }
+
     private final BotProperties properties;
-    private final RestClient restClient;
+    private final JsonMapper jsonMapper;
+    private final HttpClient httpClient;
+    private final URI generateUri;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder promptTokensTotal = new LongAdder();
+    private final LongAdder latencyMicrosTotal = new LongAdder();
+    private final LongAdder streams = new LongAdder();
+    private final LongAdder firstTokenMicrosTotal = new LongAdder();
+    private volatile long lastPromptTokens;
+    private volatile long lastFirstTokenMicros;
 
-    public OllamaClient(BotProperties properties) {
+    public OllamaClient(BotProperties properties, JsonMapper jsonMapper) {
         this.properties = properties;
-        this.restClient = RestClient.builder()
-                .baseUrl(properties.getBaseUrl())
+        this.jsonMapper = jsonMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
                 .build();
+        this.generateUri = URI.create(properties.getBaseUrl().replaceAll("/+$", "") + "/api/generate");
+    }
+
+    public Stats getStats() {
+        long requestCount = requests.sum();
+        long streamCount = streams.sum();
+        return new Stats(
+                requestCount,
+                requestCount == 0 ? 0 : promptTokensTotal.sum() / requestCount,
+                lastPromptTokens,
+                requestCount == 0 ? 0 : latencyMicrosTotal.sum() / requestCount,
+                streamCount,
+                streamCount == 0 ? 0 : firstTokenMicrosTotal.sum() / streamCount,
+                lastFirstTokenMicros
+        );
     }
 
     public String generate(String prompt) {
+        return generateAsync(prompt).join();
+    }
+
+    public CompletableFuture<String> generateAsync(String prompt) {
+        return generateAsync(null, prompt, null)
+                .thenApply(generation -> generation == null ? null : generation.text());
+    }
+
+    /**
+     * Generates a reply to {@code prompt}. A non-null {@code system} and {@code context} continue
+     * an earlier conversation, so only the new turn has to be evaluated.
+     */
+    public CompletableFuture<Generation> generateAsync(String system, String prompt, int[] context) {
+        if (prompt == null || prompt.isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long startedAt = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request(system, prompt, context, false), HttpResponse.BodyHandlers.ofByteArray());
+        return cancellable(exchange, exchange
+                .thenApply(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        return null;
+                    }
+                    OllamaGenerateResponse body = jsonMapper.readValue(response.body(), OllamaGenerateResponse.class);
+                    if (body == null || body.response() == null || body.response().isBlank()) {
+                        return null;
+                    }
+                    return completed(body.response(), body, startedAt);
+                })
+                .exceptionally(ex -> null));
+    }
+
+    /**
+     * Streams the completion, handing each token to {@code onToken} as its NDJSON line arrives,
+     * and completes with the whole reply trimmed, or null if nothing usable came back.
+     */
+    public CompletableFuture<Generation> generateStreamAsync(String system, String prompt, int[] context,
+                                                             Consumer<String> onToken) {
         if (prompt == null || prompt.isBlank()) {
-            return null;
+            return CompletableFuture.completedFuture(null);
         }
 
+        NdjsonSubscriber subscriber = new NdjsonSubscriber(onToken, System.nanoTime());
+        CompletableFuture<HttpResponse<Generation>> exchange = httpClient.sendAsync(
+                request(system, prompt, context, true),
+                HttpResponse.BodyHandlers.fromLineSubscriber(subscriber, NdjsonSubscriber::generation, "\n"));
+        return cancellable(exchange, exchange
+                .thenApply(response -> response.statusCode() / 100 == 2 ? response.body() : null)
+                .exceptionally(ex -> null));
+    }
+
+    private static <T> CompletableFuture<T> cancellable(CompletableFuture<?> exchange, CompletableFuture<T> result) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) exchange.cancel(true);
+        });
+        return result;
+    }
+
+    private HttpRequest request(String system, String prompt, int[] context, boolean stream) {
         OllamaGenerateRequest request = new OllamaGenerateRequest(
                 properties.getModel(),
                 prompt,
-                false,
+                system,
+                context,
+                system == null ? null : properties.getKeepAlive(),
+                stream,
                 new OllamaOptions(properties.getMaxTokens(), properties.getTemperature())
         );
+        return HttpRequest.newBuilder(generateUri)
+                .timeout(Duration.ofSeconds(Math.max(1, properties.getRequestTimeoutSeconds())))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(jsonMapper.writeValueAsBytes(request)))
+                .build();
+    }
+
+    private Generation completed(String text, OllamaGenerateResponse last, long startedAt) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) return null;
+        int promptTokens = last == null || last.prompt_eval_count() == null ? 0 : last.prompt_eval_count();
+        requests.increment();
+        promptTokensTotal.add(promptTokens);
+        lastPromptTokens = promptTokens;
+        latencyMicrosTotal.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt));
+        return new Generation(trimmed, last == null ? null : last.context(), promptTokens);
+    }
+
+    private void recordFirstToken(long startedAt) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt);
+        lastFirstTokenMicros = micros;
+        firstTokenMicrosTotal.add(micros);
+        streams.increment();
+    }
+
+    // Line signals arrive one at a time, so the builder needs no locking.
+    private final class NdjsonSubscriber implements Flow.Subscriber<String> {
+        private final Consumer<String> onToken;
+        private final long startedAt;
+        private final StringBuilder reply = new StringBuilder();
+        private OllamaGenerateResponse last;
+        private boolean done;
+
+        private NdjsonSubscriber(Consumer<String> onToken, long startedAt) {
+            this.onToken = onToken;
+            this.startedAt = startedAt;
+        }
 
-        try {
-            OllamaGenerateResponse response = restClient.post()
-                    .uri("/api/generate")
-                    .body(request)
-                    .retrieve()
-                    .body(OllamaGenerateResponse.class);
-            if (response == null || response.response() == null || response.response().isBlank()) {
-                return null;
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (done || line.isBlank()) return;
+            OllamaGenerateResponse chunk;
+            try {
+                chunk = jsonMapper.readValue(line, OllamaGenerateResponse.class);
+            } catch (JacksonException ex) {
+                // Keep what arrived so far; the rest of the body is drained and ignored.
+                done = true;
+                return;
+            }
+            String token = chunk.response();
+            if (token != null && !token.isEmpty()) {
+                if (reply.isEmpty()) recordFirstToken(startedAt);
+                reply.append(token);
+                onToken.accept(token);
             }
-            return response.response().trim();
-        } catch (RestClientException ex) {
-            return null;
+            if (chunk.done()) {
+                last = chunk;
+                done = true;
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done = true;
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+        }
+
+        private Generation generation() {
+            return completed(reply.toString(), last, startedAt);
         }
     }
 }
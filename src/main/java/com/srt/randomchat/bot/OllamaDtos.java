@@ -1,10 +1,19 @@
 package com.srt.randomchat.bot;
 
-record OllamaGenerateRequest(String model, String prompt, boolean stream, OllamaOptions options) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record OllamaGenerateRequest(String model,
+                             String prompt,
+                             String system,
+                             int[] context,
+                             String keep_alive,
+                             boolean stream,
+                             OllamaOptions options) {
 }
 
 record OllamaOptions(Integer num_predict, Double temperature) {
 }
 
-record OllamaGenerateResponse(String response) {
+record OllamaGenerateResponse(String response, boolean done, int[] context, Integer prompt_eval_count) {
 }
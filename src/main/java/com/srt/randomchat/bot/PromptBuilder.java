@@ -4,6 +4,7 @@ import org.springframework.stereotype.Component;
 
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class PromptBuilder {
@@ -11,6 +12,7 @@ public class PromptBuilder {
     private final BotProperties properties;
     private final BotIdentityManager identityManager;
     private final MemoryManager memoryManager;
+    private final ConcurrentHashMap<BotIdentityManager.BotIdentity, String> personaPrefixes = new ConcurrentHashMap<>();
 
     public PromptBuilder(BotProperties properties, BotIdentityManager identityManager, MemoryManager memoryManager) {
         this.properties = properties;
@@ -26,6 +28,40 @@ public class PromptBuilder {
         return buildPromptInternal(sessionId, userMessage, true);
     }
 
+    /**
+     * The persona instructions for the session's bot, built once per identity. Sent as the system
+     * message so that it stays identical from turn to turn.
+     */
+    public String systemPrompt(String sessionId) {
+        return personaPrefix(identityManager.getOrCreate(sessionId));
+    }
+
+    /**
+     * The user turn for a request that carries {@link #systemPrompt} and, unless {@code seed} is
+     * set, the context returned by the previous reply. A seed turn replays the remembered
+     * conversation because there is no context to continue from. Every turn is framed like
+     * {@link #buildPrompt}: the user's line is labelled and the bot's name cues the reply.
+     */
+    public String turnPrompt(String sessionId, String userMessage, boolean forceQuestion, boolean seed) {
+        BotIdentityManager.BotIdentity identity = identityManager.getOrCreate(sessionId);
+        StringJoiner joiner = new StringJoiner("\n");
+        if (forceQuestion) {
+            joiner.add("Make it a short question.");
+        }
+        if (seed) {
+            List<MemoryManager.MemoryEntry> memory = memoryManager.getRecent(sessionId);
+            if (!memory.isEmpty()) {
+                joiner.add("Conversation so far:");
+                for (MemoryManager.MemoryEntry entry : memory) {
+                    joiner.add(formatRole(entry.role(), identity) + ": " + entry.content());
+                }
+            }
+        }
+        joiner.add("User: " + userMessage);
+        joiner.add(identity.name() + ":");
+        return joiner.toString();
+    }
+
     public String trimToShortReply(String reply) {
         if (reply == null || reply.isBlank()) {
             return "Sorry, can you say that again?";
@@ -47,11 +83,7 @@ public class PromptBuilder {
     private String buildPromptInternal(String sessionId, String userMessage, boolean forceQuestion) {
         BotIdentityManager.BotIdentity identity = identityManager.getOrCreate(sessionId);
         StringJoiner joiner = new StringJoiner("\n");
-        joiner.add("You are " + identity.name() + ", age " + identity.age() + ", from " + identity.city() + ".");
-        joiner.add("Never contradict these facts.");
-        joiner.add("Interests: " + String.join(", ", identity.interests()) + ".");
-        joiner.add("Tone: " + identity.tone() + ".");
-        joiner.add("Reply in 3-4 words only.");
+        joiner.add(personaPrefix(identity));
         if (forceQuestion) {
             joiner.add("Make it a short question.");
         }
@@ -67,6 +99,18 @@ public class PromptBuilder {
         return joiner.toString();
     }
 
+    private String personaPrefix(BotIdentityManager.BotIdentity identity) {
+        return personaPrefixes.computeIfAbsent(identity, id -> {
+            StringJoiner joiner = new StringJoiner("\n");
+            joiner.add("You are " + id.name() + ", age " + id.age() + ", from " + id.city() + ".");
+            joiner.add("Never contradict these facts.");
+            joiner.add("Interests: " + String.join(", ", id.interests()) + ".");
+            joiner.add("Tone: " + id.tone() + ".");
+            joiner.add("Reply in 3-4 words only.");
+            return joiner.toString();
+        });
+    }
+
     private String formatRole(String role, BotIdentityManager.BotIdentity identity) {
         if ("bot".equalsIgnoreCase(role)) {
             return identity.name();
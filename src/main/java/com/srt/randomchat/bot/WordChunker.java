@@ -0,0 +1,46 @@
+package com.srt.randomchat.bot;
+
+import java.util.function.Consumer;
+
+/**
+ * Buffers streamed tokens and passes them on only up to the last whitespace, so every chunk ends
+ * on a word boundary. Leading whitespace of the reply is dropped.
+ */
+final class WordChunker implements Consumer<String> {
+
+    private final Consumer<String> sink;
+    private final StringBuilder pending = new StringBuilder();
+    private boolean started;
+
+    WordChunker(Consumer<String> sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void accept(String token) {
+        pending.append(token);
+        int cut = pending.length() - 1;
+        while (cut >= 0 && !Character.isWhitespace(pending.charAt(cut))) {
+            cut--;
+        }
+        if (cut < 0) return;
+        String chunk = pending.substring(0, cut + 1);
+        pending.delete(0, cut + 1);
+        emit(chunk);
+    }
+
+    void finish() {
+        String rest = pending.toString();
+        pending.setLength(0);
+        emit(rest.stripTrailing());
+    }
+
+    private void emit(String chunk) {
+        if (!started) {
+            chunk = chunk.stripLeading();
+            if (chunk.isEmpty()) return;
+            started = true;
+        }
+        if (!chunk.isEmpty()) sink.accept(chunk);
+    }
+}
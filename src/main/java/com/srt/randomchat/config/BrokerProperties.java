@@ -0,0 +1,87 @@
+package com.srt.randomchat.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "randomchat.broker")
+public class BrokerProperties {
+
+    public enum Mode {
+        SIMPLE,
+        RELAY
+    }
+
+    private Mode mode = Mode.SIMPLE;
+    private String relayHost = "localhost";
+    private int relayPort = 61613;
+    private String clientLogin = "guest";
+    private String clientPasscode = "guest";
+    private String systemLogin = "guest";
+    private String systemPasscode = "guest";
+    private String virtualHost;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public String getRelayHost() {
+        return relayHost;
+    }
+
+    public void setRelayHost(String relayHost) {
+        this.relayHost = relayHost;
+    }
+
+    public int getRelayPort() {
+        return relayPort;
+    }
+
+    public void setRelayPort(int relayPort) {
+        this.relayPort = relayPort;
+    }
+
+    public String getClientLogin() {
+        return clientLogin;
+    }
+
+    public void setClientLogin(String clientLogin) {
+        this.clientLogin = clientLogin;
+    }
+
+    public String getClientPasscode() {
+        return clientPasscode;
+    }
+
+    public void setClientPasscode(String clientPasscode) {
+        this.clientPasscode = clientPasscode;
+    }
+
+    public String getSystemLogin() {
+        return systemLogin;
+    }
+
+    public void setSystemLogin(String systemLogin) {
+        this.systemLogin = systemLogin;
+    }
+
+    public String getSystemPasscode() {
+        return systemPasscode;
+    }
+
+    public void setSystemPasscode(String systemPasscode) {
+        this.systemPasscode = systemPasscode;
+    }
+
+    public String getVirtualHost() {
+        return virtualHost;
+    }
+
+    public void setVirtualHost(String virtualHost) {
+        this.virtualHost = virtualHost;
+    }
+}
@@ -0,0 +1,19 @@
+package com.srt.randomchat.config;
+
+import com.srt.randomchat.service.InMemoryMatchStore;
+import com.srt.randomchat.service.MatchStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MatchStoreConfig {
+
+    /*
+     * PartitionedMatchStore only spreads in-process stores and shares nothing between deployed
+     * instances, so it stays test-only until a networked node store exists.
+     */
+    @Bean
+    public MatchStore matchStore() {
+        return new InMemoryMatchStore();
+    }
+}
@@ -1,31 +1,115 @@
 package com.srt.randomchat.config;
 
+import com.srt.randomchat.messaging.BinaryWireFormat;
+import com.srt.randomchat.messaging.CborMessageConverter;
+import com.srt.randomchat.messaging.InboundRateLimiter;
+import com.srt.randomchat.messaging.MessagingProperties;
+import com.srt.randomchat.messaging.OutboundBackpressure;
+import com.srt.randomchat.messaging.RoomLaneExecutor;
+import com.srt.randomchat.messaging.SessionSubscriptions;
+import com.srt.randomchat.service.MatchService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.thread.Threading;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.WebSocketExtension;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.StompWebSocketEndpointRegistration;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+import java.util.concurrent.Executor;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final SessionSubscriptions sessionSubscriptions;
+    private final BrokerProperties brokerProperties;
+    private final MessagingProperties messagingProperties;
+    private final MatchService matchService;
+    private final OutboundBackpressure outboundBackpressure;
+    private final InboundRateLimiter inboundRateLimiter;
+    private final BinaryWireFormat binaryWireFormat;
+    private final boolean virtualThreads;
+
+    public WebSocketConfig(SessionSubscriptions sessionSubscriptions,
+                           BrokerProperties brokerProperties,
+                           MessagingProperties messagingProperties,
+                           MatchService matchService,
+                           OutboundBackpressure outboundBackpressure,
+                           InboundRateLimiter inboundRateLimiter,
+                           BinaryWireFormat binaryWireFormat,
+                           Environment environment) {
+        this.sessionSubscriptions = sessionSubscriptions;
+        this.brokerProperties = brokerProperties;
+        this.messagingProperties = messagingProperties;
+        this.matchService = matchService;
+        this.outboundBackpressure = outboundBackpressure;
+        this.inboundRateLimiter = inboundRateLimiter;
+        this.binaryWireFormat = binaryWireFormat;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+    }
+
+    // Threads that drain the inbound lanes unless virtual threads do; sized like the default inbound channel pool.
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor inboundLaneThreads() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        executor.setThreadNamePrefix("ws-inbound-");
+        executor.initialize();
+        return executor;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        if (brokerProperties.getMode() == BrokerProperties.Mode.RELAY) {
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(brokerProperties.getRelayHost())
+                    .setRelayPort(brokerProperties.getRelayPort())
+                    .setClientLogin(brokerProperties.getClientLogin())
+                    .setClientPasscode(brokerProperties.getClientPasscode())
+                    .setSystemLogin(brokerProperties.getSystemLogin())
+                    .setSystemPasscode(brokerProperties.getSystemPasscode());
+            if (brokerProperties.getVirtualHost() != null && !brokerProperties.getVirtualHost().isBlank()) {
+                relay.setVirtualHost(brokerProperties.getVirtualHost());
+            }
+        } else {
+            registry.enableSimpleBroker("/topic");
+        }
         registry.setApplicationDestinationPrefixes("/app");
+        // The outbound channel runs on several threads; keep each session's frames in the order they were published.
+        registry.setPreservePublishOrder(true);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(sessionSubscriptions, binaryWireFormat.inboundInterceptor(), inboundRateLimiter);
+        Executor backing = virtualThreads ? new VirtualThreadTaskExecutor("ws-inbound-") : inboundLaneThreads();
+        registration.executor(new RoomLaneExecutor(matchService, backing, messagingProperties.getInboundLanes()));
     }
 
     @Override
     public void configureClientOutboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new ChannelInterceptor() {
+        registration.interceptors(outboundBackpressure, new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
@@ -37,11 +121,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 }
                 return message;
             }
-        });
+        }, binaryWireFormat.outboundInterceptor());
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-outbound-"));
+        }
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        // Only matches frames sent with content-type application/cbor; the defaults handle the rest.
+        messageConverters.add(new CborMessageConverter(binaryWireFormat.cborMapper()));
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(messagingProperties.getSendTimeLimitMs());
+        registration.setSendBufferSizeLimit(messagingProperties.getSendBufferSizeLimitKb() * 1024);
+        registration.addDecoratorFactory(outboundBackpressure);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws").setAllowedOriginPatterns("*");
+        StompWebSocketEndpointRegistration endpoint = registry.addEndpoint("/ws").setAllowedOriginPatterns("*");
+        if (!messagingProperties.isPermessageDeflate()) {
+            endpoint.setHandshakeHandler(new DefaultHandshakeHandler() {
+                @Override
+                protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                             List<WebSocketExtension> requested,
+                                                                             List<WebSocketExtension> supported) {
+                    return super.filterRequestedExtensions(request, requested, supported).stream()
+                            .filter(extension -> !"permessage-deflate".equals(extension.getName()))
+                            .toList();
+                }
+            });
+        }
+        // Hand a session's frames to the inbound channel one at a time, so lanes see them in order.
+        registry.setPreserveReceiveOrder(true);
     }
 }
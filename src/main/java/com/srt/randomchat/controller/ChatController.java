@@ -1,33 +1,51 @@
 package com.srt.randomchat.controller;
 
+import com.srt.randomchat.bot.BotScheduler;
 import com.srt.randomchat.bot.BotService;
 import com.srt.randomchat.dto.ChatMessage;
 import com.srt.randomchat.dto.HelloRequest;
 import com.srt.randomchat.dto.JoinRequest;
 import com.srt.randomchat.dto.MatchEvent;
+import com.srt.randomchat.dto.ReplyChunk;
+import com.srt.randomchat.dto.ResumeRequest;
 import com.srt.randomchat.dto.SendMessageRequest;
 import com.srt.randomchat.dto.SessionEvent;
 import com.srt.randomchat.dto.SystemEvent;
-import com.srt.randomchat.model.MatchOutcome;
-import com.srt.randomchat.model.MatchResult;
+import com.srt.randomchat.messaging.Broadcaster;
+import com.srt.randomchat.messaging.SessionChannel;
+import com.srt.randomchat.model.SessionState;
 import com.srt.randomchat.service.MatchService;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Controller;
-import org.springframework.web.bind.annotation.GetMapping;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Controller
 public class ChatController {
 
+    private static final SystemEvent TYPING = new SystemEvent("TYPING", "typing...");
+
     private final MatchService matchService;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final Broadcaster broadcaster;
     private final BotService botService;
-
-    public ChatController(MatchService matchService, SimpMessagingTemplate messagingTemplate, BotService botService) {
+    private final BotScheduler botScheduler;
+    private final MatchNotifier matchNotifier;
+    private final Broadcaster.Encoded typing;
+    private final AtomicLong replySequence = new AtomicLong();
+
+    public ChatController(MatchService matchService,
+                          Broadcaster broadcaster,
+                          BotService botService,
+                          BotScheduler botScheduler,
+                          MatchNotifier matchNotifier) {
         this.matchService      = matchService;
-        this.messagingTemplate = messagingTemplate;
+        this.broadcaster       = broadcaster;
         this.botService = botService;
+        this.botScheduler = botScheduler;
+        this.matchNotifier = matchNotifier;
+        this.typing = broadcaster.encodeEphemeral(TYPING);
     }
 
 
@@ -37,7 +55,8 @@ public class ChatController {
         if (sessionId == null || request == null || request.clientId() == null || request.clientId().isBlank()) {
             return;
         }
-        messagingTemplate.convertAndSend("/topic/hello", new SessionEvent(request.clientId(), sessionId));
+        // Answered to the caller only; clientId lets the client match the reply to its request.
+        broadcaster.sendToSession(sessionId, SessionChannel.HELLO, new SessionEvent(request.clientId(), sessionId));
     }
 
     @MessageMapping("/join")
@@ -49,16 +68,44 @@ public class ChatController {
             return;
         }
         String anonymousId = matchService.register(sessionId, request.gender(), request.preference());
-        messagingTemplate.convertAndSend("/topic/system/" + sessionId, new SystemEvent("IDENTITY", anonymousId));
+        String resumeToken = matchService.getSession(sessionId).map(SessionState::resumeToken).orElse(null);
+        broadcaster.sendToSession(sessionId, SessionChannel.SYSTEM, new SystemEvent("IDENTITY", anonymousId, resumeToken));
+        matchService.requestMatch(sessionId)
+                .ifPresent(matchNotifier::notifyMatched);
+    }
+
+    @MessageMapping("/resume")
+    public void resume(ResumeRequest request, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        if (sessionId == null) return;
+        if (request == null || request.resumeToken() == null || request.resumeToken().isBlank()) {
+            sendError(sessionId, "Invalid resume payload. Provide resumeToken.");
+            return;
+        }
+        SessionState resumed = matchService.resume(request.resumeToken(), sessionId).orElse(null);
+        if (resumed == null) {
+            sendError(sessionId, "Session cannot be resumed. Join again.");
+            return;
+        }
+        broadcaster.sendToSession(
+                sessionId,
+                SessionChannel.SYSTEM,
+                new SystemEvent("IDENTITY", resumed.anonymousId(), resumed.resumeToken())
+        );
+        if (resumed.inRoom()) {
+            broadcaster.sendToSession(sessionId, SessionChannel.MATCH, new MatchEvent("RESUMED", resumed.roomId()));
+            return;
+        }
         matchService.requestMatch(sessionId)
-                .ifPresent(this::notifyMatched);
+                .ifPresent(matchNotifier::notifyMatched);
     }
 
     @MessageMapping("/message")
     public void message(SendMessageRequest request, SimpMessageHeaderAccessor headerAccessor) {
         String sessionId = headerAccessor.getSessionId();
         if (sessionId == null) return;
-        if (!matchService.isRegistered(sessionId)) {
+        SessionState session = matchService.getSession(sessionId).orElse(SessionState.EMPTY);
+        if (!session.registered()) {
             sendError(sessionId, "Join first before sending messages.");
             return;
         }
@@ -66,35 +113,54 @@ public class ChatController {
             sendError(sessionId, "Invalid message payload.");
             return;
         }
-        matchService.getRoom(sessionId)
-                .filter(roomId -> roomId.equals(request.roomId()))
-                .ifPresentOrElse(
-                        roomId -> {
-                            String senderId = matchService.getAnonymousId(sessionId).orElse("anon");
-                            messagingTemplate.convertAndSend(
-                                    "/topic/room/" + roomId,
-                                    new ChatMessage(roomId, senderId, request.message())
-                            );
-                            if (matchService.isBotRoom(roomId) && botService.isEnabled()) {
-                                messagingTemplate.convertAndSend(
-                                        "/topic/room/" + roomId,
-                                        new SystemEvent("TYPING", "typing...")
-                                );
-                                botService.generateReply(sessionId, request.message())
-                                        .thenAccept(reply -> {
-                                            if (reply == null) {
-                                                handleBotFailure(sessionId, roomId);
-                                                return;
-                                            }
-                                            messagingTemplate.convertAndSend(
-                                                    "/topic/room/" + roomId,
-                                                    new ChatMessage(roomId, botService.getBotSenderId(), reply)
-                                            );
-                                        });
-                            }
-                        },
-                        () -> sendError(sessionId, "You are not in this room.")
-                );
+        String roomId = session.roomId();
+        if (roomId == null || !roomId.equals(request.roomId())) {
+            sendError(sessionId, "You are not in this room.");
+            return;
+        }
+        String roomTopic = session.roomTopic();
+        broadcaster.send(
+                roomTopic,
+                new ChatMessage(roomId, session.anonymousId(), request.message())
+        );
+        if (session.botRoom() && botService.isEnabled()) {
+            BotScheduler.Admission admission =
+                    botScheduler.schedule(sessionId, request.message(), botListener(sessionId, roomId, roomTopic));
+            if (admission == BotScheduler.Admission.REJECTED) {
+                sendError(sessionId, "Bot is busy. Try again in a moment.");
+                return;
+            }
+            broadcaster.send(roomTopic, typing);
+        }
+    }
+
+    private BotScheduler.Listener botListener(String sessionId, String roomId, String roomTopic) {
+        String replyId = "r" + replySequence.incrementAndGet();
+        AtomicInteger chunkIndex = new AtomicInteger();
+        return new BotScheduler.Listener() {
+            @Override
+            public void onChunk(String chunk) {
+                // Chunks are ephemeral: a slow client may miss some, the committing ChatMessage restores the text.
+                ReplyChunk replyChunk = new ReplyChunk(roomId, replyId, chunkIndex.getAndIncrement(), chunk);
+                broadcaster.send(roomTopic, broadcaster.encodeEphemeral(replyChunk));
+            }
+
+            @Override
+            public void onReply(String reply) {
+                if (!roomId.equals(matchService.getRoom(sessionId).orElse(null))) return;
+                broadcaster.send(roomTopic, new ChatMessage(roomId, botService.getBotSenderId(), reply, replyId));
+            }
+
+            @Override
+            public void onFailure() {
+                handleBotFailure(sessionId, roomId);
+            }
+
+            @Override
+            public void onBusy() {
+                sendError(sessionId, "Bot is busy. Try again in a moment.");
+            }
+        };
     }
 
     @MessageMapping("/next")
@@ -107,14 +173,15 @@ public class ChatController {
         }
 
         String roomId = matchService.getRoom(sessionId).orElse(null);
+        botScheduler.cancel(sessionId);
         matchService.leaveRoom(sessionId).ifPresent(partnerId -> {
-            messagingTemplate.convertAndSend("/topic/match/" + partnerId, new MatchEvent("PARTNER_NEXT", roomId));
+            broadcaster.sendToSession(partnerId, SessionChannel.MATCH, new MatchEvent("PARTNER_NEXT", roomId));
             matchService.requestMatch(partnerId)
-                    .ifPresent(this::notifyMatched);
+                    .ifPresent(matchNotifier::notifyMatched);
         });
 
         matchService.requestMatch(sessionId)
-                .ifPresent(this::notifyMatched);
+                .ifPresent(matchNotifier::notifyMatched);
     }
 
     @MessageMapping("/leave")
@@ -128,48 +195,37 @@ public class ChatController {
 
         matchService.cancelSearch(sessionId);
         String roomId = matchService.getRoom(sessionId).orElse(null);
+        botScheduler.cancel(sessionId);
         matchService.leaveRoom(sessionId).ifPresent(partnerId ->
-                messagingTemplate.convertAndSend("/topic/match/" + partnerId, new MatchEvent("PARTNER_LEFT", roomId))
+                broadcaster.sendToSession(partnerId, SessionChannel.MATCH, new MatchEvent("PARTNER_LEFT", roomId))
         );
     }
 
     @MessageMapping("/online-count")
-    public void onlineCount() {
-        int count = matchService.getConnectedCount();
-        messagingTemplate.convertAndSend("/topic/online-count", count);
+    public void onlineCount(SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        if (sessionId == null) return;
+        String count = String.valueOf(matchService.getConnectedCount());
+        broadcaster.sendToSession(sessionId, SessionChannel.SYSTEM, new SystemEvent("ONLINE_COUNT", count));
     }
 
     private void sendError(String sessionId, String message) {
-        messagingTemplate.convertAndSend("/topic/system/" + sessionId, new SystemEvent("ERROR", message));
-    }
-
-    private void notifyMatched(MatchOutcome outcome) {
-        MatchResult matchResult = outcome.matchResult();
-        if (outcome.replacedSessionId() != null && outcome.replacedRoomId() != null) {
-            messagingTemplate.convertAndSend(
-                    "/topic/match/" + outcome.replacedSessionId(),
-                    new MatchEvent("PARTNER_LEFT", outcome.replacedRoomId())
-            );
-        }
-        MatchEvent event = new MatchEvent("MATCHED", matchResult.roomId());
-        messagingTemplate.convertAndSend("/topic/match/" + matchResult.sessionA(), event);
-        messagingTemplate.convertAndSend("/topic/match/" + matchResult.sessionB(), event);
-        messagingTemplate.convertAndSend(
-                "/topic/room/" + matchResult.roomId(),
-                new SystemEvent("SYSTEM", "Match found. Say hi!")
-        );
+        broadcaster.sendToSession(sessionId, SessionChannel.SYSTEM, new SystemEvent("ERROR", message));
     }
 
     private void handleBotFailure(String sessionId, String roomId) {
+        botScheduler.cancel(sessionId);
         matchService.leaveRoom(sessionId);
-        messagingTemplate.convertAndSend(
-                "/topic/match/" + sessionId,
+        broadcaster.sendToSession(
+                sessionId,
+                SessionChannel.MATCH,
                 new MatchEvent("PARTNER_LEFT", roomId)
         );
         matchService.requestMatch(sessionId)
-                .ifPresent(this::notifyMatched);
-        messagingTemplate.convertAndSend(
-                "/topic/system/" + sessionId,
+                .ifPresent(matchNotifier::notifyMatched);
+        broadcaster.sendToSession(
+                sessionId,
+                SessionChannel.SYSTEM,
                 new SystemEvent("ERROR", "Bot unavailable. Searching for a partner...")
         );
     }
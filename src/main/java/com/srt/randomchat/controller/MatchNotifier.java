@@ -0,0 +1,97 @@
+package com.srt.randomchat.controller;
+
+import com.srt.randomchat.bot.BotScheduler;
+import com.srt.randomchat.bot.BotService;
+import com.srt.randomchat.dto.MatchEvent;
+import com.srt.randomchat.dto.SystemEvent;
+import com.srt.randomchat.messaging.Broadcaster;
+import com.srt.randomchat.messaging.SessionChannel;
+import com.srt.randomchat.model.MatchOutcome;
+import com.srt.randomchat.model.MatchResult;
+import com.srt.randomchat.model.SessionState;
+import com.srt.randomchat.service.MatchListener;
+import com.srt.randomchat.service.MatchService;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class MatchNotifier implements MatchListener {
+
+    private static final SystemEvent MATCH_FOUND = new SystemEvent("SYSTEM", "Match found. Say hi!");
+    private static final SystemEvent SEARCH_EXPIRED =
+            new SystemEvent("SEARCH_EXPIRED", "No partner found. Press next to search again.");
+
+    private final MatchService matchService;
+    private final Broadcaster broadcaster;
+    private final BotService botService;
+    private final BotScheduler botScheduler;
+    private final Broadcaster.Encoded matchFound;
+    private final Broadcaster.Encoded searchExpired;
+
+    public MatchNotifier(MatchService matchService,
+                         Broadcaster broadcaster,
+                         BotService botService,
+                         BotScheduler botScheduler) {
+        this.matchService = matchService;
+        this.broadcaster = broadcaster;
+        this.botService = botService;
+        this.botScheduler = botScheduler;
+        this.matchFound = broadcaster.encode(MATCH_FOUND);
+        this.searchExpired = broadcaster.encode(SEARCH_EXPIRED);
+        matchService.setListener(this);
+    }
+
+    @Override
+    public void onMatched(List<MatchOutcome> outcomes) {
+        notifyMatched(outcomes);
+    }
+
+    @Override
+    public void onPartnerLeft(String sessionId, String roomId) {
+        broadcaster.sendToSession(sessionId, SessionChannel.MATCH, new MatchEvent("PARTNER_LEFT", roomId));
+        matchService.requestMatchAsync(sessionId)
+                .thenAccept(outcome -> outcome.ifPresent(this::notifyMatched));
+    }
+
+    @Override
+    public void onBotHandoffDue(String sessionId) {
+        if (!botService.isEnabled()) return;
+        matchService.handOffToBot(sessionId).ifPresent(roomId -> {
+            broadcaster.sendToSession(sessionId, SessionChannel.MATCH, new MatchEvent("MATCHED", roomId));
+            matchService.getSession(sessionId)
+                    .map(SessionState::roomTopic)
+                    .ifPresent(roomTopic -> broadcaster.send(roomTopic, matchFound));
+        });
+    }
+
+    @Override
+    public void onSearchExpired(String sessionId) {
+        broadcaster.sendToSession(sessionId, SessionChannel.SYSTEM, searchExpired);
+    }
+
+    public void notifyMatched(List<MatchOutcome> outcomes) {
+        for (MatchOutcome outcome : outcomes) {
+            notifyMatched(outcome);
+        }
+    }
+
+    public void notifyMatched(MatchOutcome outcome) {
+        MatchResult matchResult = outcome.matchResult();
+        if (outcome.replacedSessionId() != null) {
+            // Taken out of its bot room by a human match; its pending reply is no longer wanted.
+            botScheduler.cancel(outcome.replacedSessionId());
+        }
+        if (outcome.replacedSessionId() != null && outcome.replacedRoomId() != null) {
+            broadcaster.sendToSession(
+                    outcome.replacedSessionId(),
+                    SessionChannel.MATCH,
+                    new MatchEvent("PARTNER_LEFT", outcome.replacedRoomId())
+            );
+        }
+        Broadcaster.Encoded matched = broadcaster.encode(new MatchEvent("MATCHED", matchResult.roomId()));
+        broadcaster.sendToSession(matchResult.sessionA(), SessionChannel.MATCH, matched);
+        broadcaster.sendToSession(matchResult.sessionB(), SessionChannel.MATCH, matched);
+        broadcaster.send(matchResult.roomTopic(), matchFound);
+    }
+}
@@ -1,6 +1,13 @@
 package com.srt.randomchat.controller;
 
+import com.srt.randomchat.bot.BotScheduler;
+import com.srt.randomchat.bot.BotService;
+import com.srt.randomchat.bot.OllamaClient;
+import com.srt.randomchat.messaging.BinaryWireFormat;
+import com.srt.randomchat.messaging.InboundRateLimiter;
+import com.srt.randomchat.messaging.OutboundBackpressure;
 import com.srt.randomchat.model.MatchStats;
+import com.srt.randomchat.model.TickStats;
 import com.srt.randomchat.service.MatchService;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -14,9 +21,27 @@ import java.util.Map;
 public class StatusController {
 
     private final MatchService matchService;
+    private final OutboundBackpressure outboundBackpressure;
+    private final InboundRateLimiter inboundRateLimiter;
+    private final BinaryWireFormat binaryWireFormat;
+    private final OllamaClient ollamaClient;
+    private final BotService botService;
+    private final BotScheduler botScheduler;
 
-    public StatusController(MatchService matchService) {
+    public StatusController(MatchService matchService,
+                            OutboundBackpressure outboundBackpressure,
+                            InboundRateLimiter inboundRateLimiter,
+                            BinaryWireFormat binaryWireFormat,
+                            OllamaClient ollamaClient,
+                            BotService botService,
+                            BotScheduler botScheduler) {
         this.matchService = matchService;
+        this.outboundBackpressure = outboundBackpressure;
+        this.inboundRateLimiter = inboundRateLimiter;
+        this.binaryWireFormat = binaryWireFormat;
+        this.ollamaClient = ollamaClient;
+        this.botService = botService;
+        this.botScheduler = botScheduler;
     }
 
     @GetMapping("/health")
@@ -32,6 +57,41 @@ public class StatusController {
         payload.put("registered", stats.registeredCount());
         payload.put("waiting", stats.waitingCount());
         payload.put("activeRooms", stats.activeRooms());
+        if (matchService.isTickMode()) {
+            TickStats tick = matchService.getTickStats();
+            Map<String, Object> tickPayload = new LinkedHashMap<>();
+            tickPayload.put("ticks", tick.ticks());
+            tickPayload.put("totalPairs", tick.totalPairs());
+            tickPayload.put("lastTickPairs", tick.lastTickPairs());
+            tickPayload.put("lastTickMicros", tick.lastTickMicros());
+            tickPayload.put("maxTickMicros", tick.maxTickMicros());
+            payload.put("matchTick", tickPayload);
+        }
+        OutboundBackpressure.Stats outbound = outboundBackpressure.stats();
+        Map<String, Object> outboundPayload = new LinkedHashMap<>();
+        outboundPayload.put("droppedEphemeral", outbound.droppedEphemeral());
+        outboundPayload.put("slowConsumerDisconnects", outbound.slowConsumerDisconnects());
+        outboundPayload.put("sessionsOverLimit", outbound.sessionsOverLimit());
+        outboundPayload.put("largestBacklog", outbound.largestBacklog());
+        payload.put("outbound", outboundPayload);
+        payload.put("rateLimited", inboundRateLimiter.rejectedCount());
+        payload.put("binarySessions", binaryWireFormat.binarySessionCount());
+        OllamaClient.Stats ollama = ollamaClient.getStats();
+        Map<String, Object> botPayload = new LinkedHashMap<>();
+        botPayload.put("repliesInFlight", botService.getRepliesInFlight());
+        botPayload.put("repliesQueued", botService.getRepliesQueued());
+        botPayload.put("admitted", botScheduler.getAdmitted());
+        botPayload.put("rejected", botScheduler.getRejected());
+        botPayload.put("timedOut", botScheduler.getTimedOut());
+        botPayload.put("coalesced", botScheduler.getCoalesced());
+        botPayload.put("requests", ollama.requests());
+        botPayload.put("averagePromptTokens", ollama.averagePromptTokens());
+        botPayload.put("lastPromptTokens", ollama.lastPromptTokens());
+        botPayload.put("averageLatencyMicros", ollama.averageLatencyMicros());
+        botPayload.put("streams", ollama.streams());
+        botPayload.put("averageFirstTokenMicros", ollama.averageFirstTokenMicros());
+        botPayload.put("lastFirstTokenMicros", ollama.lastFirstTokenMicros());
+        payload.put("bot", botPayload);
         return payload;
     }
 }
@@ -1,12 +1,11 @@
 package com.srt.randomchat.controller;
 
+import com.srt.randomchat.bot.BotScheduler;
 import com.srt.randomchat.dto.MatchEvent;
-import com.srt.randomchat.dto.SystemEvent;
-import com.srt.randomchat.model.MatchOutcome;
-import com.srt.randomchat.model.MatchResult;
+import com.srt.randomchat.messaging.Broadcaster;
+import com.srt.randomchat.messaging.SessionChannel;
 import com.srt.randomchat.service.MatchService;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
@@ -15,11 +14,18 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 public class WebSocketEvents {
 
     private final MatchService matchService;
-    private final SimpMessagingTemplate messagingTemplate;
-
-    public WebSocketEvents(MatchService matchService, SimpMessagingTemplate messagingTemplate) {
+    private final Broadcaster broadcaster;
+    private final MatchNotifier matchNotifier;
+    private final BotScheduler botScheduler;
+
+    public WebSocketEvents(MatchService matchService,
+                           Broadcaster broadcaster,
+                           MatchNotifier matchNotifier,
+                           BotScheduler botScheduler) {
         this.matchService      = matchService;
-        this.messagingTemplate = messagingTemplate;
+        this.broadcaster       = broadcaster;
+        this.matchNotifier = matchNotifier;
+        this.botScheduler = botScheduler;
     }
 
     @EventListener
@@ -27,7 +33,6 @@ public class WebSocketEvents {
         String sessionId = event.getMessage().getHeaders().get("simpSessionId", String.class);
         if (sessionId == null) return;
         matchService.registerConnected(sessionId);
-        broadcastOnlineCount();
     }
 
     @EventListener
@@ -35,33 +40,12 @@ public class WebSocketEvents {
         String sessionId = event.getSessionId();
         if (sessionId == null) return;
 
+        botScheduler.cancel(sessionId);
         String roomId = matchService.getRoom(sessionId).orElse(null);
         matchService.handleDisconnect(sessionId).ifPresent(partnerId -> {
-            messagingTemplate.convertAndSend("/topic/match/" + partnerId, new MatchEvent("PARTNER_LEFT", roomId));
+            broadcaster.sendToSession(partnerId, SessionChannel.MATCH, new MatchEvent("PARTNER_LEFT", roomId));
             matchService.requestMatch(partnerId)
-                    .ifPresent(this::notifyMatched);
+                    .ifPresent(matchNotifier::notifyMatched);
         });
-        broadcastOnlineCount();
-    }
-
-    private void broadcastOnlineCount() {
-        messagingTemplate.convertAndSend("/topic/online-count", matchService.getConnectedCount());
-    }
-
-    private void notifyMatched(MatchOutcome outcome) {
-        MatchResult matchResult = outcome.matchResult();
-        if (outcome.replacedSessionId() != null && outcome.replacedRoomId() != null) {
-            messagingTemplate.convertAndSend(
-                    "/topic/match/" + outcome.replacedSessionId(),
-                    new MatchEvent("PARTNER_LEFT", outcome.replacedRoomId())
-            );
-        }
-        MatchEvent matched = new MatchEvent("MATCHED", matchResult.roomId());
-        messagingTemplate.convertAndSend("/topic/match/" + matchResult.sessionA(), matched);
-        messagingTemplate.convertAndSend("/topic/match/" + matchResult.sessionB(), matched);
-        messagingTemplate.convertAndSend(
-                "/topic/room/" + matchResult.roomId(),
-                new SystemEvent("SYSTEM", "Match found. Say hi!")
-        );
     }
 }
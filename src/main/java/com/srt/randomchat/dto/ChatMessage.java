@@ -1,4 +1,11 @@
 package com.srt.randomchat.dto;
 
-public record ChatMessage(String roomId, String senderId, String message) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatMessage(String roomId, String senderId, String message, String replyId) {
+
+    public ChatMessage(String roomId, String senderId, String message) {
+        this(roomId, senderId, message, null);
+    }
 }
@@ -0,0 +1,8 @@
+package com.srt.randomchat.dto;
+
+public record ReplyChunk(String type, String roomId, String replyId, int index, String text) {
+
+    public ReplyChunk(String roomId, String replyId, int index, String text) {
+        this("REPLY_CHUNK", roomId, replyId, index, text);
+    }
+}
@@ -0,0 +1,4 @@
+package com.srt.randomchat.dto;
+
+public record ResumeRequest(String resumeToken) {
+}
@@ -1,4 +1,11 @@
 package com.srt.randomchat.dto;
 
-public record SystemEvent(String type, String message) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SystemEvent(String type, String message, String resumeToken) {
+
+    public SystemEvent(String type, String message) {
+        this(type, message, null);
+    }
 }
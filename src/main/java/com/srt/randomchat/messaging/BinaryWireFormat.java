@@ -0,0 +1,98 @@
+package com.srt.randomchat.messaging;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Opt-in CBOR wire format. A session that sends {@code content-type:application/cbor} on CONNECT
+ * receives every JSON MESSAGE frame re-encoded as CBOR in a binary WebSocket frame. The STOMP
+ * handler only writes binary frames for {@code application/octet-stream}, so that is the
+ * content-type these frames carry. Registered on both client channels.
+ */
+@Component
+public class BinaryWireFormat {
+
+    private final Set<String> binarySessions = ConcurrentHashMap.newKeySet();
+    private final JsonMapper jsonMapper;
+    private final CBORMapper cborMapper;
+    private final ChannelInterceptor inbound = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            return onInbound(message);
+        }
+    };
+    private final ChannelInterceptor outbound = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            return onOutbound(message);
+        }
+    };
+
+    public BinaryWireFormat(JsonMapper jsonMapper) {
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = CBORMapper.builder().build();
+    }
+
+    public CBORMapper cborMapper() {
+        return cborMapper;
+    }
+
+    public ChannelInterceptor inboundInterceptor() {
+        return inbound;
+    }
+
+    public ChannelInterceptor outboundInterceptor() {
+        return outbound;
+    }
+
+    public int binarySessionCount() {
+        return binarySessions.size();
+    }
+
+    private Message<?> onInbound(Message<?> message) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null || accessor.getSessionId() == null) return message;
+        if (StompCommand.CONNECT.equals(accessor.getCommand()) || StompCommand.STOMP.equals(accessor.getCommand())) {
+            MimeType contentType = accessor.getContentType();
+            if (contentType != null && CborMessageConverter.APPLICATION_CBOR.isCompatibleWith(contentType)) {
+                binarySessions.add(accessor.getSessionId());
+            }
+        } else if (StompCommand.DISCONNECT.equals(accessor.getCommand())) {
+            binarySessions.remove(accessor.getSessionId());
+        }
+        return message;
+    }
+
+    private Message<?> onOutbound(Message<?> message) {
+        if (binarySessions.isEmpty()) return message;
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) return message;
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || !binarySessions.contains(sessionId)) return message;
+        if (!(message.getPayload() instanceof byte[] json)) return message;
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        MimeType contentType = accessor.getContentType();
+        if (contentType != null && !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) return message;
+
+        byte[] cbor = message.getHeaders().get(Broadcaster.ENCODED_HEADER) instanceof Broadcaster.Encoded encoded
+                ? encoded.cbor(cborMapper)
+                // Relayed or converter-built messages have no shared encoding to reuse.
+                : cborMapper.writeValueAsBytes(jsonMapper.readTree(json));
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+}
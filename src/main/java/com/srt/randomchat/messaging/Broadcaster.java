@@ -0,0 +1,160 @@
+package com.srt.randomchat.messaging;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Outbound path for server-originated messages. Payloads are serialized to JSON once, through a
+ * per-thread reusable buffer, and the resulting bytes are shared by every destination they go to,
+ * so the message converter is bypassed entirely. Private events skip the broker and are written
+ * to the session's {@link SessionChannel} subscription on the client outbound channel. Every
+ * message carries its {@link Encoded} form, so sessions on the binary wire format get a CBOR
+ * encoding that is likewise produced once and shared.
+ */
+@Component
+public class Broadcaster {
+
+    /** Message header holding the {@link Encoded} a message was built from. */
+    public static final String ENCODED_HEADER = "randomchat.encoded";
+
+    /**
+     * Serialized payload. Ephemeral payloads may be dropped for a slow session, see {@link OutboundBackpressure}.
+     * The CBOR form is only produced once a binary session needs it.
+     */
+    public static final class Encoded {
+        private final Object payload;
+        private final byte[] json;
+        private final boolean ephemeral;
+        private volatile byte[] cbor;
+
+        private Encoded(Object payload, byte[] json, boolean ephemeral) {
+            this.payload = payload;
+            this.json = json;
+            this.ephemeral = ephemeral;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        public boolean ephemeral() {
+            return ephemeral;
+        }
+
+        byte[] cbor(CBORMapper cborMapper) {
+            byte[] encoded = cbor;
+            if (encoded == null) {
+                encoded = cborMapper.writeValueAsBytes(payload);
+                cbor = encoded;
+            }
+            return encoded;
+        }
+    }
+
+    // Buffers that grew past this are dropped instead of being kept for the thread's lifetime.
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        private Buffer() {
+            super(512);
+        }
+
+        private byte[] copy() {
+            return Arrays.copyOf(buf, count);
+        }
+
+        private int capacity() {
+            return buf.length;
+        }
+    }
+
+    private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MessageChannel clientOutboundChannel;
+    private final SessionSubscriptions sessionSubscriptions;
+    private final JsonMapper jsonMapper;
+
+    public Broadcaster(SimpMessagingTemplate messagingTemplate,
+                       @Qualifier("clientOutboundChannel") MessageChannel clientOutboundChannel,
+                       SessionSubscriptions sessionSubscriptions,
+                       JsonMapper jsonMapper) {
+        this.messagingTemplate = messagingTemplate;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.sessionSubscriptions = sessionSubscriptions;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public Encoded encode(Object payload) {
+        return encode(payload, false);
+    }
+
+    public Encoded encodeEphemeral(Object payload) {
+        return encode(payload, true);
+    }
+
+    private Encoded encode(Object payload, boolean ephemeral) {
+        Buffer buffer = BUFFER.get();
+        buffer.reset();
+        try {
+            jsonMapper.writeValue(buffer, payload);
+            return new Encoded(payload, buffer.copy(), ephemeral);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER) BUFFER.remove();
+        }
+    }
+
+    public void send(String destination, Object payload) {
+        send(destination, encode(payload));
+    }
+
+    public void send(String destination, Encoded payload) {
+        messagingTemplate.send(destination, message(payload));
+    }
+
+    public void sendToSession(String sessionId, SessionChannel channel, Object payload) {
+        String subscriptionId = sessionSubscriptions.subscriptionId(sessionId, channel);
+        if (subscriptionId == null) return;
+        sendToSubscription(sessionId, subscriptionId, channel, encode(payload));
+    }
+
+    public void sendToSession(String sessionId, SessionChannel channel, Encoded payload) {
+        String subscriptionId = sessionSubscriptions.subscriptionId(sessionId, channel);
+        if (subscriptionId == null) return;
+        sendToSubscription(sessionId, subscriptionId, channel, payload);
+    }
+
+    private void sendToSubscription(String sessionId, String subscriptionId, SessionChannel channel, Encoded payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(channel.destination());
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (payload.ephemeral()) accessor.setNativeHeader(OutboundBackpressure.EPHEMERAL_HEADER, "true");
+        accessor.setHeader(ENCODED_HEADER, payload);
+        accessor.setLeaveMutable(true);
+        clientOutboundChannel.send(MessageBuilder.createMessage(payload.json(), accessor.getMessageHeaders()));
+    }
+
+    private Message<byte[]> message(Encoded payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        // Native, so the marker also survives a round trip through a relayed broker.
+        if (payload.ephemeral()) accessor.setNativeHeader(OutboundBackpressure.EPHEMERAL_HEADER, "true");
+        accessor.setHeader(ENCODED_HEADER, payload);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(payload.json(), accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,40 @@
+package com.srt.randomchat.messaging;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeType;
+import tools.jackson.dataformat.cbor.CBORMapper;
+
+/**
+ * Reads and writes {@code application/cbor} STOMP payloads. Selected by the frame's content-type,
+ * so JSON frames keep going to the default converters.
+ */
+public class CborMessageConverter extends AbstractMessageConverter {
+
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    private final CBORMapper cborMapper;
+
+    public CborMessageConverter(CBORMapper cborMapper) {
+        super(APPLICATION_CBOR);
+        this.cborMapper = cborMapper;
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return true;
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        if (!(message.getPayload() instanceof byte[] payload)) return null;
+        return cborMapper.readValue(payload, targetClass);
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        return cborMapper.writeValueAsBytes(payload);
+    }
+}
@@ -0,0 +1,97 @@
+package com.srt.randomchat.messaging;
+
+import com.srt.randomchat.dto.SystemEvent;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-session, per-destination rate limits for inbound SEND frames, checked on the receiving
+ * thread before a frame reaches the inbound lanes. Frames over the limit are dropped and the
+ * session is told so on its system channel, at most once per second.
+ */
+@Component
+public class InboundRateLimiter implements ChannelInterceptor {
+
+    private static final SystemEvent RATE_LIMITED = new SystemEvent("RATE_LIMITED", "Too many requests. Slow down.");
+    private static final long NOTICE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int MESSAGE = 0;
+    private static final int NEXT = 1;
+    private static final int ONLINE_COUNT = 2;
+    private static final int OTHER = 3;
+    private static final int SLOTS = 4;
+
+    private static final class SessionLimits {
+        private final AtomicLongArray arrivals = new AtomicLongArray(SLOTS);
+        private final AtomicLong lastNotice = new AtomicLong(-NOTICE_INTERVAL_NANOS);
+    }
+
+    private final ObjectProvider<Broadcaster> broadcaster;
+    private final TokenBucket[] buckets = new TokenBucket[SLOTS];
+    private final ConcurrentHashMap<String, SessionLimits> sessions = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final long startedAt = System.nanoTime();
+
+    // The broadcaster needs the channels this interceptor is registered on, so it is looked up lazily.
+    public InboundRateLimiter(ObjectProvider<Broadcaster> broadcaster, MessagingProperties properties) {
+        this.broadcaster = broadcaster;
+        buckets[MESSAGE] = bucket(properties.getMessageRateLimit());
+        buckets[NEXT] = bucket(properties.getNextRateLimit());
+        buckets[ONLINE_COUNT] = bucket(properties.getOnlineCountRateLimit());
+        buckets[OTHER] = bucket(properties.getOtherRateLimit());
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) return message;
+        if (type == SimpMessageType.DISCONNECT) {
+            sessions.remove(sessionId);
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (type != SimpMessageType.MESSAGE || destination == null) return message;
+
+        SessionLimits limits = sessions.get(sessionId);
+        if (limits == null) limits = sessions.computeIfAbsent(sessionId, id -> new SessionLimits());
+        int slot = slot(destination);
+        long now = System.nanoTime() - startedAt;
+        if (buckets[slot].tryAcquire(limits.arrivals, slot, now)) return message;
+
+        rejected.increment();
+        long lastNotice = limits.lastNotice.get();
+        if (now - lastNotice >= NOTICE_INTERVAL_NANOS && limits.lastNotice.compareAndSet(lastNotice, now)) {
+            broadcaster.getObject().sendToSession(sessionId, SessionChannel.SYSTEM, RATE_LIMITED);
+        }
+        return null;
+    }
+
+    private static int slot(String destination) {
+        return switch (destination) {
+            case "/app/message" -> MESSAGE;
+            case "/app/next", "/app/leave" -> NEXT;
+            case "/app/online-count" -> ONLINE_COUNT;
+            default -> OTHER;
+        };
+    }
+
+    private static TokenBucket bucket(MessagingProperties.RateLimit limit) {
+        return new TokenBucket(limit.getPerSecond(), limit.getBurst());
+    }
+}
@@ -0,0 +1,132 @@
+package com.srt.randomchat.messaging;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "randomchat.messaging")
+public class MessagingProperties {
+
+    private long onlineCountIntervalMs = 1000;
+    private int inboundLanes = 64;
+    private int sendTimeLimitMs = 10000;
+    private int sendBufferSizeLimitKb = 512;
+    private int ephemeralDropBacklog = 16;
+    private int slowConsumerBacklog = 256;
+    private long slowConsumerGraceMs = 5000;
+    private boolean permessageDeflate = true;
+    private final RateLimit messageRateLimit = new RateLimit(5, 10);
+    private final RateLimit nextRateLimit = new RateLimit(1, 3);
+    private final RateLimit onlineCountRateLimit = new RateLimit(1, 2);
+    private final RateLimit otherRateLimit = new RateLimit(5, 10);
+
+    public static class RateLimit {
+
+        private double perSecond;
+        private int burst;
+
+        public RateLimit() {
+        }
+
+        public RateLimit(double perSecond, int burst) {
+            this.perSecond = perSecond;
+            this.burst = burst;
+        }
+
+        public double getPerSecond() {
+            return perSecond;
+        }
+
+        public void setPerSecond(double perSecond) {
+            this.perSecond = perSecond;
+        }
+
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+    }
+
+    public long getOnlineCountIntervalMs() {
+        return onlineCountIntervalMs;
+    }
+
+    public void setOnlineCountIntervalMs(long onlineCountIntervalMs) {
+        this.onlineCountIntervalMs = onlineCountIntervalMs;
+    }
+
+    public int getInboundLanes() {
+        return inboundLanes;
+    }
+
+    public void setInboundLanes(int inboundLanes) {
+        this.inboundLanes = inboundLanes;
+    }
+
+    public int getSendTimeLimitMs() {
+        return sendTimeLimitMs;
+    }
+
+    public void setSendTimeLimitMs(int sendTimeLimitMs) {
+        this.sendTimeLimitMs = sendTimeLimitMs;
+    }
+
+    public int getSendBufferSizeLimitKb() {
+        return sendBufferSizeLimitKb;
+    }
+
+    public void setSendBufferSizeLimitKb(int sendBufferSizeLimitKb) {
+        this.sendBufferSizeLimitKb = sendBufferSizeLimitKb;
+    }
+
+    public int getEphemeralDropBacklog() {
+        return ephemeralDropBacklog;
+    }
+
+    public void setEphemeralDropBacklog(int ephemeralDropBacklog) {
+        this.ephemeralDropBacklog = ephemeralDropBacklog;
+    }
+
+    public int getSlowConsumerBacklog() {
+        return slowConsumerBacklog;
+    }
+
+    public void setSlowConsumerBacklog(int slowConsumerBacklog) {
+        this.slowConsumerBacklog = slowConsumerBacklog;
+    }
+
+    public long getSlowConsumerGraceMs() {
+        return slowConsumerGraceMs;
+    }
+
+    public void setSlowConsumerGraceMs(long slowConsumerGraceMs) {
+        this.slowConsumerGraceMs = slowConsumerGraceMs;
+    }
+
+    public RateLimit getMessageRateLimit() {
+        return messageRateLimit;
+    }
+
+    public RateLimit getNextRateLimit() {
+        return nextRateLimit;
+    }
+
+    public RateLimit getOnlineCountRateLimit() {
+        return onlineCountRateLimit;
+    }
+
+    public RateLimit getOtherRateLimit() {
+        return otherRateLimit;
+    }
+
+    public boolean isPermessageDeflate() {
+        return permessageDeflate;
+    }
+
+    public void setPermessageDeflate(boolean permessageDeflate) {
+        this.permessageDeflate = permessageDeflate;
+    }
+}
@@ -0,0 +1,54 @@
+package com.srt.randomchat.messaging;
+
+import com.srt.randomchat.service.MatchService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the online count to {@code /topic/online-count} once per interval, and only when it
+ * changed since the last publish, so connect and disconnect bursts coalesce into one frame.
+ */
+@Component
+public class OnlineCountPublisher {
+
+    public static final String TOPIC = "/topic/online-count";
+
+    private final MatchService matchService;
+    private final Broadcaster broadcaster;
+    private final ScheduledExecutorService scheduler;
+    private int lastPublished = -1;
+
+    public OnlineCountPublisher(MatchService matchService, Broadcaster broadcaster, MessagingProperties properties) {
+        this.matchService = matchService;
+        this.broadcaster = broadcaster;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "online-count");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = Math.max(1, properties.getOnlineCountIntervalMs());
+        scheduler.scheduleAtFixedRate(this::publishIfChanged, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // A failed run must not throw: the scheduler would cancel every later one. The count is retried next interval.
+    void publishIfChanged() {
+        try {
+            int count = matchService.getConnectedCount();
+            if (count == lastPublished) return;
+            broadcaster.send(TOPIC, broadcaster.encodeEphemeral(count));
+            lastPublished = count;
+        } catch (RuntimeException ex) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+        }
+    }
+}
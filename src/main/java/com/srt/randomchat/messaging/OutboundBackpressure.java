@@ -0,0 +1,210 @@
+package com.srt.randomchat.messaging;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-session outbound backlog policy. Every MESSAGE frame routed to a session counts as backlog
+ * until the socket has written it, or until the channel reports it was not sent. Above
+ * {@code ephemeral-drop-backlog} ephemeral frames (typing, online count) are dropped so chat messages
+ * are not stuck behind them; a session that stays above {@code slow-consumer-backlog} for
+ * {@code slow-consumer-grace-ms} is disconnected, checked on every frame and by a periodic sweep so a
+ * stalled session is caught even when no more frames arrive. Registered on the client outbound
+ * channel and as a decorator of the WebSocket handler.
+ */
+@Component
+public class OutboundBackpressure implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /** Native header marking a frame that may be dropped for a slow session. */
+    public static final String EPHEMERAL_HEADER = "ephemeral";
+
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.US_ASCII);
+
+    public record Stats(long droppedEphemeral, long slowConsumerDisconnects, int sessionsOverLimit, int largestBacklog) {
+    }
+
+    // System.nanoTime() may be zero or negative, so a link within the limit is marked by a value it is not expected to return.
+    private static final long WITHIN_LIMIT = Long.MIN_VALUE;
+
+    private static final class Link {
+        private final WebSocketSession session;
+        private final AtomicInteger backlog = new AtomicInteger();
+        private final AtomicLong overLimitSince = new AtomicLong(WITHIN_LIMIT);
+        private final AtomicBoolean closing = new AtomicBoolean();
+
+        private Link(WebSocketSession session) {
+            this.session = session;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Link> links = new ConcurrentHashMap<>();
+    private final LongAdder droppedEphemeral = new LongAdder();
+    private final LongAdder slowConsumerDisconnects = new LongAdder();
+    private final int ephemeralDropBacklog;
+    private final int slowConsumerBacklog;
+    private final long slowConsumerGraceNanos;
+    private final ScheduledExecutorService sweeper;
+
+    public OutboundBackpressure(MessagingProperties properties) {
+        this.ephemeralDropBacklog = Math.max(1, properties.getEphemeralDropBacklog());
+        this.slowConsumerBacklog = Math.max(ephemeralDropBacklog, properties.getSlowConsumerBacklog());
+        long graceMs = Math.max(0, properties.getSlowConsumerGraceMs());
+        this.slowConsumerGraceNanos = TimeUnit.MILLISECONDS.toNanos(graceMs);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbound-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMs = Math.max(100, graceMs / 4);
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    public Stats stats() {
+        int overLimit = 0;
+        int largest = 0;
+        for (Link link : links.values()) {
+            int backlog = link.backlog.get();
+            if (backlog > slowConsumerBacklog) overLimit++;
+            largest = Math.max(largest, backlog);
+        }
+        return new Stats(droppedEphemeral.sum(), slowConsumerDisconnects.sum(), overLimit, largest);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) return message;
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Link link = sessionId == null ? null : links.get(sessionId);
+        if (link == null) return message;
+        if (link.backlog.get() >= ephemeralDropBacklog && isEphemeral(message)) {
+            droppedEphemeral.increment();
+            return null;
+        }
+        if (link.backlog.incrementAndGet() > slowConsumerBacklog) {
+            checkOverLimit(link);
+        }
+        return message;
+    }
+
+    // Also called when a later interceptor dropped the frame or the send failed; it will never be written.
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        if (sent && ex == null) return;
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) return;
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        Link link = sessionId == null ? null : links.get(sessionId);
+        if (link != null) written(link);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                Link link = new Link(session);
+                links.put(session.getId(), link);
+                super.afterConnectionEstablished(new CountingSession(session, link));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                links.remove(session.getId());
+                // Also the status the transport uses when the send time or buffer limit is exceeded.
+                if (CloseStatus.SESSION_NOT_RELIABLE.equals(closeStatus)) slowConsumerDisconnects.increment();
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    void sweep() {
+        for (Link link : links.values()) {
+            if (link.backlog.get() > slowConsumerBacklog) checkOverLimit(link);
+        }
+    }
+
+    private void checkOverLimit(Link link) {
+        long now = System.nanoTime();
+        if (link.overLimitSince.compareAndSet(WITHIN_LIMIT, now)) return;
+        long since = link.overLimitSince.get();
+        if (since == WITHIN_LIMIT || now - since < slowConsumerGraceNanos) return;
+        if (!link.closing.compareAndSet(false, true)) return;
+        try {
+            link.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ignored) {
+            // The transport tears the session down either way.
+        }
+    }
+
+    private void written(Link link) {
+        int backlog = link.backlog.updateAndGet(value -> Math.max(0, value - 1));
+        if (backlog <= slowConsumerBacklog && link.overLimitSince.get() != WITHIN_LIMIT) {
+            link.overLimitSince.set(WITHIN_LIMIT);
+        }
+    }
+
+    private static boolean isEphemeral(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        return "true".equals(accessor.getFirstNativeHeader(EPHEMERAL_HEADER));
+    }
+
+    private static boolean isMessageFrame(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.getPayload().startsWith("MESSAGE\n");
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload();
+            if (payload.remaining() < MESSAGE_COMMAND.length) return false;
+            for (int i = 0; i < MESSAGE_COMMAND.length; i++) {
+                if (payload.get(payload.position() + i) != MESSAGE_COMMAND[i]) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private final class CountingSession extends WebSocketSessionDecorator {
+        private final Link link;
+
+        private CountingSession(WebSocketSession session, Link link) {
+            super(session);
+            this.link = link;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            if (isMessageFrame(message)) written(link);
+        }
+    }
+}
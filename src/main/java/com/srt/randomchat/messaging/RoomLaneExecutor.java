@@ -0,0 +1,105 @@
+package com.srt.randomchat.messaging;
+
+import com.srt.randomchat.service.MatchService;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Executor for the client inbound channel that runs frames on serial lanes. A frame from a session
+ * in a room goes to the room's lane, any other frame to the session's lane, so a room's frames are
+ * handled one at a time in arrival order while different rooms run in parallel on the backing
+ * executor. A session keeps the lane it was last routed to until its queued frames there have run,
+ * so frames queued just before it enters or leaves a room still run ahead of its later ones.
+ */
+public class RoomLaneExecutor implements TaskExecutor {
+
+    private final class Lane implements Runnable {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private void submit(Runnable task) {
+            tasks.add(task);
+            if (scheduled.compareAndSet(false, true)) backing.execute(this);
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+                }
+            }
+            scheduled.set(false);
+            // A task added after the last poll but before the flag was cleared would otherwise wait.
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) backing.execute(this);
+        }
+    }
+
+    private static final class Route {
+        private final Lane lane;
+        private int queued;
+
+        private Route(Lane lane) {
+            this.lane = lane;
+        }
+    }
+
+    private final MatchService matchService;
+    private final Executor backing;
+    private final Lane[] lanes;
+    private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+
+    public RoomLaneExecutor(MatchService matchService, Executor backing, int laneCount) {
+        this.matchService = matchService;
+        this.backing = backing;
+        this.lanes = new Lane[Math.max(1, laneCount)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String sessionId = sessionId(task);
+        if (sessionId == null) {
+            backing.execute(task);
+            return;
+        }
+        Lane lane = laneFor(matchService.getRoom(sessionId).orElse(sessionId));
+        Route route = routes.compute(sessionId, (id, current) -> {
+            Route next = current != null ? current : new Route(lane);
+            next.queued++;
+            return next;
+        });
+        route.lane.submit(() -> {
+            try {
+                task.run();
+            } finally {
+                routes.computeIfPresent(sessionId, (id, current) -> --current.queued == 0 ? null : current);
+            }
+        });
+    }
+
+    private Lane laneFor(String key) {
+        int hash = key.hashCode() * 0x9E3779B9;
+        return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
+    }
+
+    private static String sessionId(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable handling)) return null;
+        Message<?> message = handling.getMessage();
+        return SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+    }
+}
@@ -0,0 +1,28 @@
+package com.srt.randomchat.messaging;
+
+/**
+ * Private per-session destinations. They are not broker destinations: a subscription is only
+ * recorded against its session and messages are written straight to that session.
+ */
+public enum SessionChannel {
+    HELLO("/session/hello"),
+    MATCH("/session/match"),
+    SYSTEM("/session/system");
+
+    private final String destination;
+
+    SessionChannel(String destination) {
+        this.destination = destination;
+    }
+
+    public String destination() {
+        return destination;
+    }
+
+    static SessionChannel fromDestination(String destination) {
+        for (SessionChannel channel : values()) {
+            if (channel.destination.equals(destination)) return channel;
+        }
+        return null;
+    }
+}
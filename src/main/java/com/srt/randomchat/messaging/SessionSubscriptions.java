@@ -0,0 +1,69 @@
+package com.srt.randomchat.messaging;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records each session's subscription ids for the {@link SessionChannel} destinations, so a
+ * private message is resolved with one map lookup instead of matching the broker's registry.
+ * Registered on the client inbound channel.
+ */
+@Component
+public class SessionSubscriptions implements ChannelInterceptor {
+
+    private static final int CHANNELS = SessionChannel.values().length;
+
+    private final ConcurrentHashMap<String, String[]> subscriptions = new ConcurrentHashMap<>();
+
+    public String subscriptionId(String sessionId, SessionChannel channel) {
+        String[] ids = subscriptions.get(sessionId);
+        return ids == null ? null : ids[channel.ordinal()];
+    }
+
+    public int sessionCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null || accessor.getSessionId() == null) return message;
+        String sessionId = accessor.getSessionId();
+        StompCommand command = accessor.getCommand();
+        if (StompCommand.SUBSCRIBE.equals(command)) {
+            SessionChannel target = SessionChannel.fromDestination(accessor.getDestination());
+            if (target != null && accessor.getSubscriptionId() != null) {
+                set(sessionId, target, accessor.getSubscriptionId());
+            }
+        } else if (StompCommand.UNSUBSCRIBE.equals(command)) {
+            String subscriptionId = accessor.getSubscriptionId();
+            if (subscriptionId != null) {
+                for (SessionChannel target : SessionChannel.values()) {
+                    if (subscriptionId.equals(subscriptionId(sessionId, target))) set(sessionId, target, null);
+                }
+            }
+        } else if (StompCommand.DISCONNECT.equals(command)) {
+            subscriptions.remove(sessionId);
+        }
+        return message;
+    }
+
+    private void set(String sessionId, SessionChannel target, String subscriptionId) {
+        subscriptions.compute(sessionId, (id, current) -> {
+            String[] updated = current == null ? new String[CHANNELS] : Arrays.copyOf(current, CHANNELS);
+            updated[target.ordinal()] = subscriptionId;
+            for (String value : updated) {
+                if (value != null) return updated;
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,33 @@
+package com.srt.randomchat.messaging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token bucket in its GCRA form: the whole state of a bucket is one theoretical arrival time,
+ * kept in a caller-owned {@link AtomicLongArray} slot and advanced with a CAS. A rate of zero or
+ * less disables the limit.
+ */
+final class TokenBucket {
+
+    private final long emissionNanos;
+    private final long toleranceNanos;
+
+    TokenBucket(double perSecond, int burst) {
+        this.emissionNanos = perSecond <= 0 ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        this.toleranceNanos = emissionNanos * (Math.max(1, burst) - 1);
+    }
+
+    /**
+     * Takes one token from the bucket stored at {@code slot}. {@code nowNanos} must not go
+     * backwards and starts at or above zero.
+     */
+    boolean tryAcquire(AtomicLongArray arrivals, int slot, long nowNanos) {
+        while (true) {
+            long arrival = arrivals.get(slot);
+            long start = Math.max(arrival, nowNanos);
+            if (start - nowNanos > toleranceNanos) return false;
+            if (arrivals.compareAndSet(slot, arrival, start + emissionNanos)) return true;
+        }
+    }
+}
@@ -1,4 +1,4 @@
 package com.srt.randomchat.model;
 
-public record MatchResult(String roomId, String sessionA, String sessionB) {
+public record MatchResult(String roomId, String sessionA, String sessionB, String roomTopic) {
 }
@@ -0,0 +1,20 @@
+package com.srt.randomchat.model;
+
+public record Room(String roomId, String sessionA, String sessionB) {
+
+    public String other(String sessionId) {
+        if (sessionA.equals(sessionId)) return sessionB;
+        if (sessionB.equals(sessionId)) return sessionA;
+        return null;
+    }
+
+    public boolean hasMember(String sessionId) {
+        return sessionA.equals(sessionId) || sessionB.equals(sessionId);
+    }
+
+    public Room replaceMember(String sessionId, String replacement) {
+        if (sessionA.equals(sessionId)) return new Room(roomId, replacement, sessionB);
+        if (sessionB.equals(sessionId)) return new Room(roomId, sessionA, replacement);
+        return this;
+    }
+}
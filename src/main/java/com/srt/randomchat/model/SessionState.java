@@ -0,0 +1,52 @@
+package com.srt.randomchat.model;
+
+public record SessionState(UserProfile profile,
+                           String roomId,
+                           String roomTopic,
+                           boolean botRoom,
+                           boolean waiting,
+                           boolean connected,
+                           String resumeToken) {
+
+    public static final SessionState EMPTY = new SessionState(null, null, null, false, false, false, null);
+
+    public boolean registered() {
+        return profile != null;
+    }
+
+    public String anonymousId() {
+        return profile == null ? null : profile.anonymousId();
+    }
+
+    public boolean inRoom() {
+        return roomId != null;
+    }
+
+    public boolean isEmpty() {
+        return profile == null && !connected;
+    }
+
+    public SessionState withProfile(UserProfile profile) {
+        return new SessionState(profile, roomId, roomTopic, botRoom, waiting, connected, resumeToken);
+    }
+
+    public SessionState withRoom(String roomId, String roomTopic, boolean botRoom) {
+        return new SessionState(profile, roomId, roomTopic, botRoom, false, connected, resumeToken);
+    }
+
+    public SessionState withoutRoom() {
+        return new SessionState(profile, null, null, false, waiting, connected, resumeToken);
+    }
+
+    public SessionState withWaiting(boolean waiting) {
+        return new SessionState(profile, roomId, roomTopic, botRoom, waiting, connected, resumeToken);
+    }
+
+    public SessionState withConnected(boolean connected) {
+        return new SessionState(profile, roomId, roomTopic, botRoom, waiting, connected, resumeToken);
+    }
+
+    public SessionState withResumeToken(String resumeToken) {
+        return new SessionState(profile, roomId, roomTopic, botRoom, waiting, connected, resumeToken);
+    }
+}
@@ -0,0 +1,4 @@
+package com.srt.randomchat.model;
+
+public record TickStats(long ticks, long totalPairs, int lastTickPairs, long lastTickMicros, long maxTickMicros) {
+}
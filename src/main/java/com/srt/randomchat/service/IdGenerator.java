@@ -0,0 +1,53 @@
+package com.srt.randomchat.service;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Compact, unguessable 64-bit identifiers rendered as 11 URL-safe base64 characters.
+ * Each thread draws from its own SecureRandom, so generating ids never contends.
+ */
+final class IdGenerator {
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final int LENGTH = 11;
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(IdGenerator::newRandom);
+
+    private IdGenerator() {
+    }
+
+    static String next() {
+        return encode(RANDOM.get().nextLong());
+    }
+
+    static String next(String prefix) {
+        return prefix + next();
+    }
+
+    /**
+     * 128 random bits for secrets such as resume tokens.
+     */
+    static String token() {
+        SecureRandom random = RANDOM.get();
+        return encode(random.nextLong()) + encode(random.nextLong());
+    }
+
+    private static String encode(long value) {
+        char[] chars = new char[LENGTH];
+        for (int i = LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 63)];
+            value >>>= 6;
+        }
+        return new String(chars);
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException ex) {
+            return new SecureRandom();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Room;
+import com.srt.randomchat.model.SessionState;
+import com.srt.randomchat.model.UserProfile;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+public class InMemoryMatchStore implements MatchStore {
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Room>         rooms    = new ConcurrentHashMap<>();
+    private final MatchPool[] pools = new MatchPool[Pool.values().length];
+    private long lastOrder;
+
+    public InMemoryMatchStore() {
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new MatchPool();
+        }
+    }
+
+    @Override
+    public SessionState getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    @Override
+    public SessionState updateSession(String sessionId, UnaryOperator<SessionState> change) {
+        SessionState after = sessions.compute(sessionId, (id, current) -> {
+            SessionState next = change.apply(current == null ? SessionState.EMPTY : current);
+            return next.isEmpty() ? null : next;
+        });
+        return after == null ? SessionState.EMPTY : after;
+    }
+
+    @Override
+    public Room getRoom(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    @Override
+    public void putRoom(Room room) {
+        rooms.put(room.roomId(), room);
+    }
+
+    @Override
+    public Room removeRoom(String roomId) {
+        return rooms.remove(roomId);
+    }
+
+    @Override
+    public int roomCount() {
+        return rooms.size();
+    }
+
+    @Override
+    public synchronized long enqueue(Pool pool, String sessionId, UserProfile profile) {
+        // Wall-clock based so candidates from different stores can be compared by age.
+        long order = Math.max(lastOrder + 1, System.currentTimeMillis() * 1000);
+        lastOrder = order;
+        pools[pool.ordinal()].add(sessionId, profile, order);
+        return order;
+    }
+
+    @Override
+    public synchronized void reinstate(Pool pool, String sessionId, UserProfile profile, long order) {
+        pools[pool.ordinal()].add(sessionId, profile, order);
+    }
+
+    @Override
+    public synchronized boolean dequeue(Pool pool, String sessionId) {
+        return pools[pool.ordinal()].remove(sessionId);
+    }
+
+    @Override
+    public synchronized boolean requeue(Pool pool, String sessionId, UserProfile profile) {
+        return pools[pool.ordinal()].move(sessionId, profile);
+    }
+
+    @Override
+    public synchronized boolean isQueued(Pool pool, String sessionId) {
+        return pools[pool.ordinal()].contains(sessionId);
+    }
+
+    @Override
+    public int poolSize(Pool pool) {
+        return pools[pool.ordinal()].size();
+    }
+
+    @Override
+    public synchronized Optional<Candidate> peekOldest(Pool pool,
+                                                      String requesterId,
+                                                      UserProfile requester,
+                                                      BiPredicate<UserProfile, UserProfile> compatibility) {
+        return pools[pool.ordinal()].peekOldest(requesterId, requester, compatibility);
+    }
+
+    @Override
+    public synchronized Optional<String> claimOldest(Pool pool,
+                                                     String requesterId,
+                                                     UserProfile requester,
+                                                     BiPredicate<UserProfile, UserProfile> compatibility) {
+        Optional<Candidate> candidate = pools[pool.ordinal()].peekOldest(requesterId, requester, compatibility);
+        candidate.ifPresent(c -> pools[pool.ordinal()].remove(c.sessionId()));
+        return candidate.map(Candidate::sessionId);
+    }
+}
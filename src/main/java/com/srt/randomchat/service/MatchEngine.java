@@ -0,0 +1,122 @@
+package com.srt.randomchat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Single writer for matchmaking state. Commands are queued lock-free and run one at a time
+ * on a dedicated thread, so the state they touch needs no locking of its own. Commands submitted
+ * before {@link #start()} wait in the queue. Anything a command throws, errors included, fails
+ * only that command's future; the thread keeps running.
+ */
+final class MatchEngine {
+
+    private static final int MAX_COMMANDS_PER_PASS = 1024;
+
+    private static final class Periodic {
+        private final long intervalNanos;
+        private final Runnable task;
+        private long dueAt;
+
+        private Periodic(long intervalNanos, Runnable task, long dueAt) {
+            this.intervalNanos = intervalNanos;
+            this.task = task;
+            this.dueAt = dueAt;
+        }
+    }
+
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final List<Periodic>  periodics = new ArrayList<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    MatchEngine(String name) {
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<T> command) {
+        if (Thread.currentThread() == thread) {
+            try {
+                return CompletableFuture.completedFuture(command.get());
+            } catch (Throwable ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        commands.add(() -> {
+            try {
+                future.complete(command.get());
+            } catch (Throwable ex) {
+                future.completeExceptionally(ex);
+            }
+        });
+        LockSupport.unpark(thread);
+        return future;
+    }
+
+    CompletableFuture<Void> execute(Runnable command) {
+        return submit(() -> {
+            command.run();
+            return null;
+        });
+    }
+
+    void every(long interval, TimeUnit unit, Runnable task) {
+        long intervalNanos = Math.max(1, unit.toNanos(interval));
+        execute(() -> periodics.add(new Periodic(intervalNanos, task, System.nanoTime() + intervalNanos)));
+    }
+
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void run() {
+        while (running) {
+            int processed = 0;
+            Runnable command;
+            while (processed < MAX_COMMANDS_PER_PASS && (command = commands.poll()) != null) {
+                command.run();
+                processed++;
+            }
+
+            long waitNanos = runDuePeriodics();
+            if (!commands.isEmpty()) continue;
+            if (waitNanos == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+        }
+    }
+
+    private long runDuePeriodics() {
+        long waitNanos = Long.MAX_VALUE;
+        for (Periodic periodic : periodics) {
+            long now = System.nanoTime();
+            if (now - periodic.dueAt >= 0) {
+                try {
+                    periodic.task.run();
+                } catch (Throwable ex) {
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+                }
+                now = System.nanoTime();
+                periodic.dueAt += periodic.intervalNanos;
+                if (now - periodic.dueAt > 0) periodic.dueAt = now + periodic.intervalNanos;
+            }
+            waitNanos = Math.min(waitNanos, periodic.dueAt - now);
+        }
+        return Math.max(0, waitNanos);
+    }
+}
@@ -0,0 +1,324 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.model.Room;
+import com.srt.randomchat.model.UserProfile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of profile and room changes plus periodic compact snapshots.
+ * Callers only enqueue events; a background writer appends them in batches to a memory-mapped
+ * journal file and keeps a mirror of the journaled state from which snapshots are written.
+ * After a snapshot the journal starts over, so recovery reads one snapshot and a short journal.
+ */
+final class MatchJournal {
+
+    private static final int SNAPSHOT_MAGIC = 0x52434d53;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int RECORD_HEADER = 8;
+
+    private static final byte REGISTER       = 1;
+    private static final byte ROOM_OPENED    = 2;
+    private static final byte ROOM_CLOSED    = 3;
+    private static final byte SESSION_REMOVED = 4;
+    private static final byte SESSION_MOVED  = 5;
+
+    record Recovered(Map<String, UserProfile> profiles, Map<String, String> resumeTokens, Map<String, Room> rooms) {
+    }
+
+    private record Event(byte type, String first, String second, String third, int gender, int preference) {
+    }
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final long flushIntervalNanos;
+    private final long snapshotIntervalNanos;
+
+    private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+    private final Map<String, UserProfile> profiles = new HashMap<>();
+    private final Map<String, String> resumeTokens = new HashMap<>();
+    private final Map<String, Room> rooms = new HashMap<>();
+    private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+    private final DataOutputStream record = new DataOutputStream(recordBytes);
+    private final CRC32 crc = new CRC32();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer journal;
+    private Thread writer;
+    private volatile boolean running = true;
+    private long lastSnapshotAt = System.nanoTime();
+
+    MatchJournal(Path directory, int sizeMb, long flushIntervalMs, long snapshotIntervalSeconds) {
+        try {
+            Files.createDirectories(directory);
+            this.snapshotPath = directory.resolve("match.snapshot");
+            this.journalPath = directory.resolve("match.journal");
+            this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+            this.snapshotIntervalNanos = TimeUnit.SECONDS.toNanos(Math.max(1, snapshotIntervalSeconds));
+            this.channel = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(1, sizeMb) * 1024L * 1024L);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot open match journal in " + directory, ex);
+        }
+    }
+
+    /**
+     * Loads the last snapshot and replays the journal on top of it, then compacts both into a
+     * fresh snapshot and starts the background writer. Must be called once, before any event.
+     */
+    Recovered recover() {
+        try {
+            readSnapshot();
+            replayJournal();
+            writeSnapshot();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot recover match journal", ex);
+        }
+        Recovered recovered = new Recovered(Map.copyOf(profiles), Map.copyOf(resumeTokens), Map.copyOf(rooms));
+        writer = new Thread(this::runWriter, "match-journal");
+        writer.setDaemon(true);
+        writer.start();
+        return recovered;
+    }
+
+    void registered(String sessionId, UserProfile profile, String resumeToken) {
+        append(new Event(REGISTER, sessionId, profile.anonymousId(), resumeToken,
+                profile.gender().ordinal(), profile.preference().ordinal()));
+    }
+
+    void roomOpened(Room room) {
+        append(new Event(ROOM_OPENED, room.roomId(), room.sessionA(), room.sessionB(), 0, 0));
+    }
+
+    void roomClosed(String roomId) {
+        append(new Event(ROOM_CLOSED, roomId, null, null, 0, 0));
+    }
+
+    void sessionRemoved(String sessionId) {
+        append(new Event(SESSION_REMOVED, sessionId, null, null, 0, 0));
+    }
+
+    void sessionMoved(String fromSessionId, String toSessionId, String resumeToken) {
+        append(new Event(SESSION_MOVED, fromSessionId, toSessionId, resumeToken, 0, 0));
+    }
+
+    void close() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to flush; the mapping stays valid until it is collected.
+        }
+    }
+
+    private void append(Event event) {
+        if (running) events.add(event);
+    }
+
+    private void runWriter() {
+        while (running) {
+            LockSupport.parkNanos(this, flushIntervalNanos);
+            flushSafely();
+        }
+        flushSafely();
+        try {
+            writeSnapshot();
+        } catch (IOException ex) {
+            writer.getUncaughtExceptionHandler().uncaughtException(writer, ex);
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException ex) {
+            writer.getUncaughtExceptionHandler().uncaughtException(writer, ex);
+        }
+    }
+
+    private void flush() throws IOException {
+        boolean wrote = false;
+        Event event;
+        while ((event = events.poll()) != null) {
+            byte[] payload = encode(event);
+            if (journal.remaining() < RECORD_HEADER + payload.length + Integer.BYTES) {
+                writeSnapshot();
+            }
+            if (journal.remaining() >= RECORD_HEADER + payload.length + Integer.BYTES) {
+                crc.reset();
+                crc.update(payload);
+                journal.putInt(payload.length);
+                journal.putInt((int) crc.getValue());
+                journal.put(payload);
+                journal.putInt(journal.position(), 0);
+            }
+            apply(event);
+            wrote = true;
+        }
+        if (wrote) journal.force();
+        if (System.nanoTime() - lastSnapshotAt >= snapshotIntervalNanos) {
+            writeSnapshot();
+        }
+    }
+
+    private byte[] encode(Event event) throws IOException {
+        recordBytes.reset();
+        record.writeByte(event.type());
+        record.writeUTF(event.first());
+        switch (event.type()) {
+            case REGISTER -> {
+                record.writeUTF(event.second());
+                record.writeUTF(event.third());
+                record.writeByte(event.gender());
+                record.writeByte(event.preference());
+            }
+            case ROOM_OPENED -> {
+                record.writeUTF(event.second());
+                record.writeUTF(event.third());
+            }
+            case SESSION_MOVED -> {
+                record.writeUTF(event.second());
+                record.writeUTF(event.third());
+            }
+            default -> {
+            }
+        }
+        record.flush();
+        return recordBytes.toByteArray();
+    }
+
+    private Event decode(ByteBuffer payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()));
+        byte type = in.readByte();
+        String first = in.readUTF();
+        return switch (type) {
+            case REGISTER -> new Event(type, first, in.readUTF(), in.readUTF(), in.readByte(), in.readByte());
+            case ROOM_OPENED -> new Event(type, first, in.readUTF(), in.readUTF(), 0, 0);
+            case SESSION_MOVED -> new Event(type, first, in.readUTF(), in.readUTF(), 0, 0);
+            default -> new Event(type, first, null, null, 0, 0);
+        };
+    }
+
+    private void apply(Event event) {
+        switch (event.type()) {
+            case REGISTER -> {
+                profiles.put(event.first(), new UserProfile(
+                        Gender.values()[event.gender()], Preference.values()[event.preference()], event.second()));
+                resumeTokens.put(event.first(), event.third());
+            }
+            case ROOM_OPENED -> rooms.put(event.first(), new Room(event.first(), event.second(), event.third()));
+            case ROOM_CLOSED -> rooms.remove(event.first());
+            case SESSION_REMOVED -> {
+                profiles.remove(event.first());
+                resumeTokens.remove(event.first());
+            }
+            case SESSION_MOVED -> {
+                UserProfile profile = profiles.remove(event.first());
+                resumeTokens.remove(event.first());
+                if (profile != null) {
+                    profiles.put(event.second(), profile);
+                    resumeTokens.put(event.second(), event.third());
+                }
+                rooms.replaceAll((roomId, room) -> room.replaceMember(event.first(), event.second()));
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        journal.position(0);
+        while (journal.remaining() >= RECORD_HEADER) {
+            int length = journal.getInt();
+            int checksum = journal.getInt();
+            if (length <= 0 || length > journal.remaining()) break;
+            byte[] payload = new byte[length];
+            journal.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) break;
+            apply(decode(ByteBuffer.wrap(payload)));
+        }
+    }
+
+    private void readSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) return;
+            int profileCount = in.readInt();
+            for (int i = 0; i < profileCount; i++) {
+                String sessionId = in.readUTF();
+                String anonymousId = in.readUTF();
+                resumeTokens.put(sessionId, in.readUTF());
+                Gender gender = Gender.values()[in.readByte()];
+                Preference preference = Preference.values()[in.readByte()];
+                profiles.put(sessionId, new UserProfile(gender, preference, anonymousId));
+            }
+            int roomCount = in.readInt();
+            for (int i = 0; i < roomCount; i++) {
+                String roomId = in.readUTF();
+                rooms.put(roomId, new Room(roomId, in.readUTF(), in.readUTF()));
+            }
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(profiles.size());
+            for (Map.Entry<String, UserProfile> entry : profiles.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue().anonymousId());
+                out.writeUTF(resumeTokens.get(entry.getKey()));
+                out.writeByte(entry.getValue().gender().ordinal());
+                out.writeByte(entry.getValue().preference().ordinal());
+            }
+            out.writeInt(rooms.size());
+            for (Room room : rooms.values()) {
+                out.writeUTF(room.roomId());
+                out.writeUTF(room.sessionA());
+                out.writeUTF(room.sessionB());
+            }
+        }
+        Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal.position(0);
+        journal.putInt(0, 0);
+        journal.force();
+        lastSnapshotAt = System.nanoTime();
+    }
+}
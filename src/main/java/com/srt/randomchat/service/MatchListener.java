@@ -0,0 +1,34 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.MatchOutcome;
+
+import java.util.List;
+
+/**
+ * Events raised by the matcher's timers and ticks. They are delivered in order on a dedicated
+ * thread, never on the matcher thread, so a callback may call back into {@link MatchService}.
+ */
+public interface MatchListener {
+
+    void onMatched(List<MatchOutcome> outcomes);
+
+    /**
+     * Called when a session's partner went away without a request from either side,
+     * e.g. a restored session that never reconnected.
+     */
+    default void onPartnerLeft(String sessionId, String roomId) {
+    }
+
+    /**
+     * Called when a session has searched for the bot handoff period without a match. The listener
+     * may move it to a bot room with {@link MatchService#handOffToBot}; otherwise it keeps searching.
+     */
+    default void onBotHandoffDue(String sessionId) {
+    }
+
+    /**
+     * Called when a session has been taken out of search after the waiting timeout.
+     */
+    default void onSearchExpired(String sessionId) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.model.UserProfile;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+
+/**
+ * Sessions waiting for a partner, bucketed by (gender, preference).
+ * Each bucket is FIFO, so the oldest compatible session is always the head of one of
+ * the buckets accepted by the compatibility predicate. Callers serialize mutations;
+ * {@link #size()} may be read from any thread.
+ */
+final class MatchPool {
+
+    private static final Gender[]     GENDERS     = Gender.values();
+    private static final Preference[] PREFERENCES = Preference.values();
+    private static final UserProfile[] BUCKET_KEYS = new UserProfile[GENDERS.length * PREFERENCES.length];
+
+    static {
+        for (Gender gender : GENDERS) {
+            for (Preference preference : PREFERENCES) {
+                BUCKET_KEYS[bucketOf(gender, preference)] = new UserProfile(gender, preference, null);
+            }
+        }
+    }
+
+    private final LinkedHashMap<String, Long>[] buckets;
+    // Upper bound of the orders in each bucket; entries below it are inserted in place.
+    private final long[]                        tailOrders;
+    private final Map<String, Integer>          bucketBySession = new HashMap<>();
+    private volatile int size;
+
+    @SuppressWarnings("unchecked")
+    MatchPool() {
+        buckets = new LinkedHashMap[BUCKET_KEYS.length];
+        tailOrders = new long[BUCKET_KEYS.length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LinkedHashMap<>();
+            tailOrders[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Adds a session to its bucket at the place given by {@code order}. New sessions get an order
+     * above every earlier one and go to the tail in O(1); older orders are inserted in place.
+     */
+    void add(String sessionId, UserProfile profile, long order) {
+        remove(sessionId);
+        int bucket = bucketOf(profile.gender(), profile.preference());
+        if (order >= tailOrders[bucket]) {
+            buckets[bucket].put(sessionId, order);
+            tailOrders[bucket] = order;
+        } else {
+            insertInOrder(bucket, sessionId, order);
+        }
+        bucketBySession.put(sessionId, bucket);
+        size = bucketBySession.size();
+    }
+
+    /**
+     * Moves a queued session to the bucket for {@code profile}, keeping its order.
+     */
+    boolean move(String sessionId, UserProfile profile) {
+        Integer bucket = bucketBySession.get(sessionId);
+        if (bucket == null) return false;
+        if (bucket == bucketOf(profile.gender(), profile.preference())) return true;
+        add(sessionId, profile, buckets[bucket].get(sessionId));
+        return true;
+    }
+
+    boolean remove(String sessionId) {
+        Integer bucket = bucketBySession.remove(sessionId);
+        if (bucket == null) return false;
+        buckets[bucket].remove(sessionId);
+        size = bucketBySession.size();
+        return true;
+    }
+
+    boolean contains(String sessionId) {
+        return bucketBySession.containsKey(sessionId);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Optional<MatchStore.Candidate> peekOldest(String requesterId,
+                                              UserProfile requester,
+                                              BiPredicate<UserProfile, UserProfile> compatibility) {
+        String bestSession = null;
+        long bestOrder = Long.MAX_VALUE;
+        for (int i = 0; i < buckets.length; i++) {
+            if (buckets[i].isEmpty() || !compatibility.test(requester, BUCKET_KEYS[i])) continue;
+            Iterator<Map.Entry<String, Long>> it = buckets[i].entrySet().iterator();
+            Map.Entry<String, Long> head = it.next();
+            if (head.getKey().equals(requesterId)) {
+                if (!it.hasNext()) continue;
+                head = it.next();
+            }
+            if (bestSession == null || head.getValue() < bestOrder) {
+                bestSession = head.getKey();
+                bestOrder = head.getValue();
+            }
+        }
+        if (bestSession == null) return Optional.empty();
+        return Optional.of(new MatchStore.Candidate(bestSession, bestOrder));
+    }
+
+    private void insertInOrder(int bucket, String sessionId, long order) {
+        LinkedHashMap<String, Long> sorted = new LinkedHashMap<>();
+        boolean inserted = false;
+        for (Map.Entry<String, Long> entry : buckets[bucket].entrySet()) {
+            if (!inserted && entry.getValue() > order) {
+                sorted.put(sessionId, order);
+                inserted = true;
+            }
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        if (!inserted) sorted.put(sessionId, order);
+        buckets[bucket] = sorted;
+    }
+
+    private static int bucketOf(Gender gender, Preference preference) {
+        return gender.ordinal() * PREFERENCES.length + preference.ordinal();
+    }
+}
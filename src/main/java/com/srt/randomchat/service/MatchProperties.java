@@ -0,0 +1,114 @@
+package com.srt.randomchat.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "randomchat.match")
+public class MatchProperties {
+
+    public enum Mode {
+        PER_REQUEST,
+        TICK
+    }
+
+    private Mode mode = Mode.PER_REQUEST;
+    private long tickIntervalMs = 50;
+    private boolean journalEnabled = false;
+    private String journalPath = "data/match";
+    private int journalSizeMb = 64;
+    private long journalFlushIntervalMs = 20;
+    private long snapshotIntervalSeconds = 30;
+    private long restoreGraceSeconds = 60;
+    private long disconnectGraceSeconds = 30;
+    private long botHandoffSeconds = 20;
+    private long waitingTimeoutSeconds = 300;
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    public long getTickIntervalMs() {
+        return tickIntervalMs;
+    }
+
+    public void setTickIntervalMs(long tickIntervalMs) {
+        this.tickIntervalMs = tickIntervalMs;
+    }
+
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public String getJournalPath() {
+        return journalPath;
+    }
+
+    public void setJournalPath(String journalPath) {
+        this.journalPath = journalPath;
+    }
+
+    public int getJournalSizeMb() {
+        return journalSizeMb;
+    }
+
+    public void setJournalSizeMb(int journalSizeMb) {
+        this.journalSizeMb = journalSizeMb;
+    }
+
+    public long getJournalFlushIntervalMs() {
+        return journalFlushIntervalMs;
+    }
+
+    public void setJournalFlushIntervalMs(long journalFlushIntervalMs) {
+        this.journalFlushIntervalMs = journalFlushIntervalMs;
+    }
+
+    public long getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    public void setSnapshotIntervalSeconds(long snapshotIntervalSeconds) {
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+    }
+
+    public long getRestoreGraceSeconds() {
+        return restoreGraceSeconds;
+    }
+
+    public void setRestoreGraceSeconds(long restoreGraceSeconds) {
+        this.restoreGraceSeconds = restoreGraceSeconds;
+    }
+
+    public long getDisconnectGraceSeconds() {
+        return disconnectGraceSeconds;
+    }
+
+    public void setDisconnectGraceSeconds(long disconnectGraceSeconds) {
+        this.disconnectGraceSeconds = disconnectGraceSeconds;
+    }
+
+    public long getBotHandoffSeconds() {
+        return botHandoffSeconds;
+    }
+
+    public void setBotHandoffSeconds(long botHandoffSeconds) {
+        this.botHandoffSeconds = botHandoffSeconds;
+    }
+
+    public long getWaitingTimeoutSeconds() {
+        return waitingTimeoutSeconds;
+    }
+
+    public void setWaitingTimeoutSeconds(long waitingTimeoutSeconds) {
+        this.waitingTimeoutSeconds = waitingTimeoutSeconds;
+    }
+}
@@ -5,54 +5,304 @@ import com.srt.randomchat.model.MatchOutcome;
 import com.srt.randomchat.model.MatchResult;
 import com.srt.randomchat.model.MatchStats;
 import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.model.Room;
+import com.srt.randomchat.model.SessionState;
+import com.srt.randomchat.model.TickStats;
 import com.srt.randomchat.model.UserProfile;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 @Service
 public class MatchService {
 
     private static final String BOT_SESSION_ID = "BOT";
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+    private static final long TIMER_TICK_MS = 100;
+
+    // Sessions, rooms and pools; written from the matcher thread, read lock-free from any thread.
+    private final MatchStore store;
+    private volatile int registeredCount;
+    private volatile int connectedCount;
+
+    // Tick mode: sessions that asked for a match since the last tick, in arrival order.
+    private final Set<String> pending      = new LinkedHashSet<>();
+    private volatile int pendingCount;
+
+    private final MatchEngine engine = new MatchEngine("matcher");
+    // Listener callbacks for timer and tick events run here, in order, so their sends never stall matching.
+    private final ExecutorService events = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "match-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final boolean tickMode;
+    private volatile MatchListener listener = outcomes -> { };
+
+    private volatile long ticks;
+    private volatile long totalTickPairs;
+    private volatile int  lastTickPairs;
+    private volatile long lastTickMicros;
+    private volatile long maxTickMicros;
+
+    // Sessions whose connection went away but may still resume, with the timeout that removes them.
+    private final TimerWheel timers = new TimerWheel(TIMER_TICK_MS, TimeUnit.MILLISECONDS, 512);
+    private final Map<String, TimerWheel.Timeout> detached = new HashMap<>();
+    private final Map<String, String> sessionByResumeToken = new HashMap<>();
+    private final long disconnectGraceMs;
+
+    // Sessions searching for a partner, with the timeout for bot handoff or for giving up.
+    private final Map<String, TimerWheel.Timeout> waitTimers = new HashMap<>();
+    private final long botHandoffMs;
+    private final long waitingTimeoutMs;
+    private final MatchJournal journal;
+
+    public MatchService() {
+        this(new MatchProperties(), new InMemoryMatchStore());
+    }
 
-    private record Room(String sessionA, String sessionB) {
-        String other(String sessionId) {
-            if (sessionA.equals(sessionId)) return sessionB;
-            if (sessionB.equals(sessionId)) return sessionA;
-            return null;
+    @Autowired
+    public MatchService(MatchProperties properties, MatchStore store) {
+        this.store = store;
+        this.tickMode = properties.getMode() == MatchProperties.Mode.TICK;
+        this.disconnectGraceMs = TimeUnit.SECONDS.toMillis(properties.getDisconnectGraceSeconds());
+        this.botHandoffMs = TimeUnit.SECONDS.toMillis(properties.getBotHandoffSeconds());
+        this.waitingTimeoutMs = TimeUnit.SECONDS.toMillis(properties.getWaitingTimeoutSeconds());
+        CompletableFuture<Void> restored = CompletableFuture.completedFuture(null);
+        engine.every(TIMER_TICK_MS, TimeUnit.MILLISECONDS, () -> timers.advance(System.nanoTime()));
+        if (tickMode) {
+            engine.every(Math.max(1, properties.getTickIntervalMs()), TimeUnit.MILLISECONDS, this::runTick);
+        }
+        if (properties.isJournalEnabled()) {
+            this.journal = new MatchJournal(Path.of(properties.getJournalPath()),
+                                            properties.getJournalSizeMb(),
+                                            properties.getJournalFlushIntervalMs(),
+                                            properties.getSnapshotIntervalSeconds());
+            MatchJournal.Recovered recovered = journal.recover();
+            long graceMs = TimeUnit.SECONDS.toMillis(properties.getRestoreGraceSeconds());
+            restored = engine.execute(() -> restore(recovered, graceMs));
+        } else {
+            this.journal = null;
         }
+        // Started last, once every field the queued commands read has been assigned.
+        engine.start();
+        restored.join();
+    }
+
+    public void setListener(MatchListener listener) {
+        this.listener = listener;
+    }
+
+    public String register(String sessionId, Gender gender, Preference preference) {
+        return registerAsync(sessionId, gender, preference).join();
+    }
+
+    public CompletableFuture<String> registerAsync(String sessionId, Gender gender, Preference preference) {
+        return engine.submit(() -> doRegister(sessionId, gender, preference));
     }
 
-    private final Map<String, UserProfile> profiles    = new ConcurrentHashMap<>();
-    private final Queue<String>            waiting     = new ConcurrentLinkedQueue<>();
-    private final Map<String, String>      roomBySession = new ConcurrentHashMap<>();
-    private final Map<String, Room>        rooms       = new ConcurrentHashMap<>();
-    private final Map<String, String>      botRoomBySession = new ConcurrentHashMap<>();
-    private final java.util.Set<String>    connectedSessions = ConcurrentHashMap.newKeySet();
+    public Optional<MatchOutcome> requestMatch(String sessionId) {
+        return requestMatchAsync(sessionId).join();
+    }
 
-    public synchronized String register(String sessionId, Gender gender, Preference preference) {
-        UserProfile existing = profiles.get(sessionId);
-        if (existing != null) {
-            profiles.put(sessionId, new UserProfile(gender, preference, existing.anonymousId()));
-            return existing.anonymousId();
+    public CompletableFuture<Optional<MatchOutcome>> requestMatchAsync(String sessionId) {
+        if (tickMode) {
+            return engine.submit(() -> {
+                SessionState state = store.getSession(sessionId);
+                if (state != null && state.registered() && !state.inRoom() && !detached.containsKey(sessionId)) {
+                    // A session already in the waiting pool is matched from there and must not be counted twice.
+                    if (!store.isQueued(MatchStore.Pool.WAITING, sessionId)) {
+                        pending.add(sessionId);
+                        pendingCount = pending.size();
+                    }
+                    update(sessionId, s -> s.withWaiting(true));
+                    armWaitTimer(sessionId);
+                }
+                return Optional.empty();
+            });
         }
-        String anonymousId = "anon-" + UUID.randomUUID().toString().substring(0, 8);
-        profiles.put(sessionId, new UserProfile(gender, preference, anonymousId));
-        return anonymousId;
+        return engine.submit(() -> doRequestMatch(sessionId));
+    }
+
+    public Optional<String> assignBotRoom(String sessionId) {
+        return engine.submit(() -> doAssignBotRoom(sessionId)).join();
+    }
+
+    /**
+     * Like {@link #assignBotRoom}, but only for a session that is still searching, since the search
+     * may have ended after {@link MatchListener#onBotHandoffDue} was dispatched.
+     */
+    public Optional<String> handOffToBot(String sessionId) {
+        return engine.submit(() -> isSearching(sessionId) ? doAssignBotRoom(sessionId) : Optional.<String>empty()).join();
+    }
+
+    public Optional<String> leaveRoom(String sessionId) {
+        return leaveRoomAsync(sessionId).join();
+    }
+
+    public CompletableFuture<Optional<String>> leaveRoomAsync(String sessionId) {
+        return engine.submit(() -> doLeaveRoom(sessionId));
+    }
+
+    public Optional<String> handleDisconnect(String sessionId) {
+        return handleDisconnectAsync(sessionId).join();
+    }
+
+    /**
+     * With a disconnect grace period a registered session keeps its room and is only removed if it
+     * has not resumed when the grace period ends; the partner is then told through the listener.
+     * Returns the partner only when the session is removed right away.
+     */
+    public CompletableFuture<Optional<String>> handleDisconnectAsync(String sessionId) {
+        return engine.submit(() -> doDisconnect(sessionId));
+    }
+
+    /**
+     * Moves the session holding {@code resumeToken} onto {@code sessionId}, keeping its profile
+     * and room, and issues a new resume token. Returns the moved state.
+     */
+    public Optional<SessionState> resume(String resumeToken, String sessionId) {
+        return engine.submit(() -> doResume(resumeToken, sessionId)).join();
+    }
+
+    public void registerConnected(String sessionId) {
+        engine.execute(() -> update(sessionId, s -> s.withConnected(true))).join();
+    }
+
+    public void removeConnected(String sessionId) {
+        engine.execute(() -> update(sessionId, s -> s.withConnected(false))).join();
     }
 
-    public synchronized Optional<MatchOutcome> requestMatch(String sessionId) {
-        UserProfile profile = profiles.get(sessionId);
-        if (profile == null) return Optional.empty();
-        if (roomBySession.containsKey(sessionId)) return Optional.empty();
+    public void cancelSearch(String sessionId) {
+        engine.execute(() -> removeFromSearch(sessionId)).join();
+    }
+
+    public Optional<SessionState> getSession(String sessionId) {
+        return Optional.ofNullable(store.getSession(sessionId));
+    }
+
+    public Optional<String> getRoom(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        return state == null ? Optional.empty() : Optional.ofNullable(state.roomId());
+    }
+
+    public boolean isBotRoom(String roomId) {
+        Room room = store.getRoom(roomId);
+        return room != null && room.hasMember(BOT_SESSION_ID);
+    }
 
-        waiting.remove(sessionId);
+    public int getConnectedCount() {
+        return connectedCount;
+    }
+
+    public Optional<String> getAnonymousId(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        return state == null ? Optional.empty() : Optional.ofNullable(state.anonymousId());
+    }
+
+    public boolean isRegistered(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        return state != null && state.registered();
+    }
+
+    public MatchStats getStats() {
+        return new MatchStats(registeredCount, store.poolSize(MatchStore.Pool.WAITING) + pendingCount, store.roomCount());
+    }
+
+    public boolean isTickMode() {
+        return tickMode;
+    }
+
+    public TickStats getTickStats() {
+        return new TickStats(ticks, totalTickPairs, lastTickPairs, lastTickMicros, maxTickMicros);
+    }
+
+    public boolean isInRoom(String roomId, String sessionId) {
+        Room room = store.getRoom(roomId);
+        return room != null && room.hasMember(sessionId);
+    }
+
+    /*
+     * Runs before the WebSocket sessions are closed on shutdown, so the disconnects that follow
+     * are not journaled and the sessions can be restored on the next start.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void closeJournal() {
+        if (journal != null) journal.close();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closeJournal();
+        engine.shutdown();
+        events.shutdown();
+    }
+
+    private void notify(Consumer<MatchListener> event) {
+        MatchListener target = listener;
+        events.execute(() -> event.accept(target));
+    }
+
+    private void journal(Consumer<MatchJournal> entry) {
+        if (journal != null) entry.accept(journal);
+    }
+
+    private SessionState update(String sessionId, UnaryOperator<SessionState> change) {
+        SessionState[] before = new SessionState[1];
+        SessionState after = store.updateSession(sessionId, current -> {
+            before[0] = current;
+            return change.apply(current);
+        });
+        if (before[0].registered() != after.registered()) registeredCount += after.registered() ? 1 : -1;
+        if (before[0].connected() != after.connected()) connectedCount += after.connected() ? 1 : -1;
+        return after;
+    }
+
+    private String doRegister(String sessionId, Gender gender, Preference preference) {
+        SessionState state = store.getSession(sessionId);
+        if (state != null && state.registered()) {
+            UserProfile updated = new UserProfile(gender, preference, state.anonymousId());
+            update(sessionId, s -> s.withProfile(updated));
+            journal(j -> j.registered(sessionId, updated, state.resumeToken()));
+            // A changed profile must not cost the session its place in line.
+            for (MatchStore.Pool pool : MatchStore.Pool.values()) {
+                store.requeue(pool, sessionId, updated);
+            }
+            return updated.anonymousId();
+        }
+        UserProfile profile = new UserProfile(gender, preference, IdGenerator.next("anon-"));
+        String resumeToken = IdGenerator.token();
+        update(sessionId, s -> s.withProfile(profile).withResumeToken(resumeToken));
+        sessionByResumeToken.put(resumeToken, sessionId);
+        journal(j -> j.registered(sessionId, profile, resumeToken));
+        return profile.anonymousId();
+    }
+
+    private Optional<MatchOutcome> doRequestMatch(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        if (state == null || !state.registered()) return Optional.empty();
+        if (state.inRoom() || detached.containsKey(sessionId)) return Optional.empty();
+        UserProfile profile = state.profile();
+
+        store.dequeue(MatchStore.Pool.WAITING, sessionId);
 
         Optional<MatchResult> strictMatch = tryMatch(sessionId, profile, this::isCompatible);
         if (strictMatch.isPresent()) return Optional.of(new MatchOutcome(strictMatch.get(), null, null));
@@ -70,136 +320,278 @@ public class MatchService {
             if (fallbackBotMatch.isPresent()) return fallbackBotMatch;
         }
 
-        if (!waiting.contains(sessionId)) waiting.add(sessionId);
-        return Optional.empty();
+        // Publish the waiting flag before the session becomes claimable by another instance.
+        update(sessionId, s -> s.withWaiting(true));
+        long order = store.enqueue(MatchStore.Pool.WAITING, sessionId, profile);
+        armWaitTimer(sessionId);
+        // Only a shared store can have gained a compatible session since the scan above.
+        return store.isShared() ? rematchAfterEnqueue(sessionId, profile, order) : Optional.empty();
     }
 
-    public synchronized Optional<String> assignBotRoom(String sessionId) {
-        UserProfile profile = profiles.get(sessionId);
-        if (profile == null) return Optional.empty();
-        if (roomBySession.containsKey(sessionId)) return Optional.empty();
+    /*
+     * With a shared store another instance may have queued a compatible session after our scan but
+     * before we queued ourselves. Look once more and claim both sessions in id order, so two
+     * instances racing for the same pair cannot both back off.
+     */
+    private Optional<MatchOutcome> rematchAfterEnqueue(String sessionId, UserProfile profile, long order) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Optional<MatchStore.Candidate> candidate =
+                    store.peekOldest(MatchStore.Pool.WAITING, sessionId, profile, this::isCompatible);
+            if (candidate.isEmpty() && shouldFallbackToAnyGender(profile)) {
+                candidate = store.peekOldest(MatchStore.Pool.WAITING, sessionId, profile, this::isFallbackCompatible);
+            }
+            if (candidate.isEmpty()) return Optional.empty();
+
+            String otherId = candidate.get().sessionId();
+            boolean selfFirst = sessionId.compareTo(otherId) < 0;
+            String first = selfFirst ? sessionId : otherId;
+            String second = selfFirst ? otherId : sessionId;
+            if (!store.claim(MatchStore.Pool.WAITING, first)) {
+                if (selfFirst) return Optional.empty();
+                continue;
+            }
+            if (store.claim(MatchStore.Pool.WAITING, second)) {
+                return Optional.of(new MatchOutcome(openRoom(sessionId, otherId), null, null));
+            }
+            // Undo the half claim without sending the first session to the back of the line.
+            SessionState firstState = store.getSession(first);
+            if (firstState != null && firstState.registered() && !firstState.inRoom()) {
+                long firstOrder = selfFirst ? order : candidate.get().order();
+                store.reinstate(MatchStore.Pool.WAITING, first, firstState.profile(), firstOrder);
+            }
+            if (!selfFirst) return Optional.empty();
+        }
+        return Optional.empty();
+    }
 
-        waiting.remove(sessionId);
-        String roomId = "bot-" + UUID.randomUUID();
-        rooms.put(roomId, new Room(sessionId, BOT_SESSION_ID));
-        roomBySession.put(sessionId, roomId);
-        botRoomBySession.put(sessionId, roomId);
+    private Optional<String> doAssignBotRoom(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        if (state == null || !state.registered()) return Optional.empty();
+        if (state.inRoom()) return Optional.empty();
+
+        removeFromSearch(sessionId);
+        String roomId = IdGenerator.next("bot-");
+        String roomTopic = ROOM_TOPIC_PREFIX + roomId;
+        Room room = new Room(roomId, sessionId, BOT_SESSION_ID);
+        store.putRoom(room);
+        journal(j -> j.roomOpened(room));
+        update(sessionId, s -> s.withRoom(roomId, roomTopic, true));
+        store.enqueue(MatchStore.Pool.BOT, sessionId, state.profile());
         return Optional.of(roomId);
     }
 
-    public synchronized Optional<String> getRoom(String sessionId) {
-        return Optional.ofNullable(roomBySession.get(sessionId));
+    private void removeFromSearch(String sessionId) {
+        timers.cancel(waitTimers.remove(sessionId));
+        store.dequeue(MatchStore.Pool.WAITING, sessionId);
+        if (pending.remove(sessionId)) pendingCount = pending.size();
+        if (store.getSession(sessionId) != null) update(sessionId, s -> s.withWaiting(false));
     }
 
-    public synchronized boolean isBotRoom(String roomId) {
-        Room room = rooms.get(roomId);
-        if (room == null) return false;
-        return BOT_SESSION_ID.equals(room.sessionA()) || BOT_SESSION_ID.equals(room.sessionB());
+    /*
+     * One timeout per searching session: first the bot handoff, then, if the session is still
+     * searching, the remainder of the waiting timeout. A session that asks again keeps its timer.
+     */
+    private void armWaitTimer(String sessionId) {
+        if (waitTimers.containsKey(sessionId)) return;
+        if (botHandoffMs > 0) {
+            scheduleWait(sessionId, botHandoffMs, true);
+        } else if (waitingTimeoutMs > 0) {
+            scheduleWait(sessionId, waitingTimeoutMs, false);
+        }
     }
 
-    public synchronized Optional<String> leaveRoom(String sessionId) {
-        String roomId = roomBySession.remove(sessionId);
-        if (roomId == null) return Optional.empty();
-        Room room = rooms.remove(roomId);
-        if (room == null) return Optional.empty();
-        botRoomBySession.remove(sessionId);
-        String partnerId = room.other(sessionId);
-        if (partnerId != null && !BOT_SESSION_ID.equals(partnerId)) {
-            roomBySession.remove(partnerId);
-            return Optional.of(partnerId);
+    private void scheduleWait(String sessionId, long delayMs, boolean handoff) {
+        waitTimers.put(sessionId, timers.schedule(delayMs, TimeUnit.MILLISECONDS, () -> onWaitTimeout(sessionId, handoff)));
+    }
+
+    /*
+     * The handoff is only announced here; the listener moves the session with handOffToBot. The
+     * remaining waiting timeout is armed right away and cancelled if the handoff takes the session
+     * out of search.
+     */
+    private void onWaitTimeout(String sessionId, boolean handoff) {
+        waitTimers.remove(sessionId);
+        if (!isSearching(sessionId)) return;
+        if (handoff) {
+            if (waitingTimeoutMs > 0) scheduleWait(sessionId, Math.max(0, waitingTimeoutMs - botHandoffMs), false);
+            notify(l -> l.onBotHandoffDue(sessionId));
+            return;
         }
-        return Optional.empty();
+        removeFromSearch(sessionId);
+        notify(l -> l.onSearchExpired(sessionId));
     }
 
-    public synchronized Optional<String> handleDisconnect(String sessionId) {
-        waiting.remove(sessionId);
-        connectedSessions.remove(sessionId);
-        Optional<String> partnerId = leaveRoom(sessionId);
-        profiles.remove(sessionId);
-        botRoomBySession.remove(sessionId);
-        return partnerId;
+    private boolean isSearching(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        return state != null && state.waiting() && !state.inRoom();
     }
 
-    public synchronized void registerConnected(String sessionId) {
-        connectedSessions.add(sessionId);
+    private void runTick() {
+        if (pending.isEmpty()) return;
+        long startedAt = System.nanoTime();
+        String[] batch = pending.toArray(new String[0]);
+        pending.clear();
+        pendingCount = 0;
+
+        List<MatchOutcome> matched = new ArrayList<>();
+        for (String sessionId : batch) {
+            doRequestMatch(sessionId).ifPresent(matched::add);
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt);
+        ticks++;
+        totalTickPairs += matched.size();
+        lastTickPairs = matched.size();
+        lastTickMicros = micros;
+        if (micros > maxTickMicros) maxTickMicros = micros;
+
+        if (!matched.isEmpty()) notify(l -> l.onMatched(matched));
     }
 
-    public synchronized void removeConnected(String sessionId) {
-        connectedSessions.remove(sessionId);
+    private Optional<String> doLeaveRoom(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        if (state == null || !state.inRoom()) return Optional.empty();
+        update(sessionId, SessionState::withoutRoom);
+        store.dequeue(MatchStore.Pool.BOT, sessionId);
+        Room room = store.removeRoom(state.roomId());
+        if (room == null) return Optional.empty();
+        journal(j -> j.roomClosed(room.roomId()));
+        String partnerId = room.other(sessionId);
+        if (partnerId != null && !BOT_SESSION_ID.equals(partnerId)) {
+            if (store.getSession(partnerId) != null) update(partnerId, SessionState::withoutRoom);
+            return Optional.of(partnerId);
+        }
+        return Optional.empty();
     }
 
-    public synchronized int getConnectedCount() {
-        return connectedSessions.size();
+    private Optional<String> doDisconnect(String sessionId) {
+        SessionState state = store.getSession(sessionId);
+        if (disconnectGraceMs <= 0 || state == null || !state.registered()) return doRemoveSession(sessionId);
+        removeFromSearch(sessionId);
+        store.dequeue(MatchStore.Pool.BOT, sessionId);
+        update(sessionId, s -> s.withConnected(false));
+        detach(sessionId, disconnectGraceMs);
+        return Optional.empty();
     }
 
-    public synchronized void cancelSearch(String sessionId) {
-        waiting.remove(sessionId);
+    private Optional<String> doRemoveSession(String sessionId) {
+        removeFromSearch(sessionId);
+        timers.cancel(detached.remove(sessionId));
+        Optional<String> partnerId = doLeaveRoom(sessionId);
+        SessionState before = store.getSession(sessionId);
+        update(sessionId, s -> SessionState.EMPTY);
+        if (before != null && before.registered()) {
+            sessionByResumeToken.remove(before.resumeToken());
+            journal(j -> j.sessionRemoved(sessionId));
+        }
+        return partnerId;
     }
 
-    public synchronized Optional<String> getAnonymousId(String sessionId) {
-        UserProfile profile = profiles.get(sessionId);
-        return profile == null ? Optional.empty() : Optional.of(profile.anonymousId());
+    private void detach(String sessionId, long graceMs) {
+        timers.cancel(detached.remove(sessionId));
+        detached.put(sessionId, timers.schedule(graceMs, TimeUnit.MILLISECONDS, () -> expire(sessionId)));
     }
 
-    public synchronized boolean isRegistered(String sessionId) {
-        return profiles.containsKey(sessionId);
+    private void expire(String sessionId) {
+        detached.remove(sessionId);
+        SessionState state = store.getSession(sessionId);
+        String roomId = state == null ? null : state.roomId();
+        doRemoveSession(sessionId).ifPresent(partnerId -> {
+            if (!detached.containsKey(partnerId)) notify(l -> l.onPartnerLeft(partnerId, roomId));
+        });
     }
 
-    public synchronized MatchStats getStats() {
-        return new MatchStats(profiles.size(), waiting.size(), rooms.size());
+    private void restore(MatchJournal.Recovered recovered, long graceMs) {
+        recovered.profiles().forEach((sessionId, profile) -> {
+            String resumeToken = recovered.resumeTokens().get(sessionId);
+            update(sessionId, s -> s.withProfile(profile).withResumeToken(resumeToken));
+            sessionByResumeToken.put(resumeToken, sessionId);
+            detach(sessionId, graceMs);
+        });
+        for (Room room : recovered.rooms().values()) {
+            boolean botRoom = room.hasMember(BOT_SESSION_ID);
+            String roomTopic = ROOM_TOPIC_PREFIX + room.roomId();
+            store.putRoom(room);
+            for (String member : new String[] {room.sessionA(), room.sessionB()}) {
+                if (recovered.profiles().containsKey(member)) {
+                    update(member, s -> s.withRoom(room.roomId(), roomTopic, botRoom));
+                }
+            }
+        }
     }
 
-    public synchronized boolean isInRoom(String roomId, String sessionId) {
-        Room room = rooms.get(roomId);
-        if (room == null) return false;
-        return sessionId.equals(room.sessionA()) || sessionId.equals(room.sessionB());
+    /*
+     * The previous connection may not have been reported closed yet (common on mobile networks),
+     * so a live session can be taken over too; its late disconnect then finds nothing to remove.
+     */
+    private Optional<SessionState> doResume(String resumeToken, String sessionId) {
+        String previousSessionId = sessionByResumeToken.get(resumeToken);
+        if (previousSessionId == null || previousSessionId.equals(sessionId)) return Optional.empty();
+        SessionState previous = store.getSession(previousSessionId);
+        if (previous == null || !previous.registered()) return Optional.empty();
+        SessionState current = store.getSession(sessionId);
+        if (current != null && current.inRoom()) return Optional.empty();
+
+        if (current != null && current.registered()) doRemoveSession(sessionId);
+        removeFromSearch(previousSessionId);
+        store.dequeue(MatchStore.Pool.BOT, previousSessionId);
+        timers.cancel(detached.remove(previousSessionId));
+        sessionByResumeToken.remove(resumeToken);
+        update(previousSessionId, s -> SessionState.EMPTY);
+
+        String newToken = IdGenerator.token();
+        sessionByResumeToken.put(newToken, sessionId);
+        boolean connected = current != null && current.connected();
+        SessionState moved = update(sessionId, s -> {
+            SessionState withProfile = s.withProfile(previous.profile())
+                                        .withResumeToken(newToken)
+                                        .withConnected(connected);
+            return previous.inRoom()
+                    ? withProfile.withRoom(previous.roomId(), previous.roomTopic(), previous.botRoom())
+                    : withProfile;
+        });
+        if (previous.inRoom()) {
+            Room room = store.getRoom(previous.roomId());
+            if (room != null) store.putRoom(room.replaceMember(previousSessionId, sessionId));
+            if (previous.botRoom()) store.enqueue(MatchStore.Pool.BOT, sessionId, previous.profile());
+        }
+        journal(j -> j.sessionMoved(previousSessionId, sessionId, newToken));
+        return Optional.of(moved);
     }
 
     private Optional<MatchResult> tryMatch(String sessionId,
                                            UserProfile profile,
                                            BiPredicate<UserProfile, UserProfile> compatibility) {
-        for (String otherId : waiting) {
-            if (sessionId.equals(otherId)) continue;
-            UserProfile other = profiles.get(otherId);
-            if (other == null) { waiting.remove(otherId); continue; }
-            if (compatibility.test(profile, other)) {
-                waiting.remove(otherId);
-                String roomId = UUID.randomUUID().toString();
-                roomBySession.put(sessionId, roomId);
-                roomBySession.put(otherId, roomId);
-                rooms.put(roomId, new Room(sessionId, otherId));
-                return Optional.of(new MatchResult(roomId, sessionId, otherId));
-            }
-        }
-        return Optional.empty();
+        Optional<String> candidate = store.claimOldest(MatchStore.Pool.WAITING, sessionId, profile, compatibility);
+        if (candidate.isEmpty()) return Optional.empty();
+        return Optional.of(openRoom(sessionId, candidate.get()));
     }
 
     private Optional<MatchOutcome> tryMatchFromBotRooms(String sessionId,
                                                         UserProfile profile,
                                                         BiPredicate<UserProfile, UserProfile> compatibility) {
-        for (Map.Entry<String, String> entry : botRoomBySession.entrySet()) {
-            String otherId = entry.getKey();
-            if (sessionId.equals(otherId)) continue;
-            UserProfile other = profiles.get(otherId);
-            if (other == null) {
-                botRoomBySession.remove(otherId);
-                continue;
-            }
-            if (compatibility.test(profile, other)) {
-                String oldRoomId = entry.getValue();
-                rooms.remove(oldRoomId);
-                roomBySession.remove(otherId);
-                botRoomBySession.remove(otherId);
-
-                String roomId = UUID.randomUUID().toString();
-                roomBySession.put(sessionId, roomId);
-                roomBySession.put(otherId, roomId);
-                rooms.put(roomId, new Room(sessionId, otherId));
-                MatchResult result = new MatchResult(roomId, sessionId, otherId);
-                return Optional.of(new MatchOutcome(result, otherId, oldRoomId));
-            }
-        }
-        return Optional.empty();
+        Optional<String> candidate = store.claimOldest(MatchStore.Pool.BOT, sessionId, profile, compatibility);
+        if (candidate.isEmpty()) return Optional.empty();
+        String otherId = candidate.get();
+        SessionState other = store.getSession(otherId);
+        String oldRoomId = other == null ? null : other.roomId();
+        if (oldRoomId != null && store.removeRoom(oldRoomId) != null) journal(j -> j.roomClosed(oldRoomId));
+
+        MatchResult result = openRoom(sessionId, otherId);
+        return Optional.of(new MatchOutcome(result, otherId, oldRoomId));
+    }
+
+    private MatchResult openRoom(String sessionId, String otherId) {
+        String roomId = IdGenerator.next();
+        String roomTopic = ROOM_TOPIC_PREFIX + roomId;
+        Room room = new Room(roomId, sessionId, otherId);
+        store.putRoom(room);
+        journal(j -> j.roomOpened(room));
+        timers.cancel(waitTimers.remove(sessionId));
+        timers.cancel(waitTimers.remove(otherId));
+        update(sessionId, s -> s.withRoom(roomId, roomTopic, false));
+        update(otherId, s -> s.withRoom(roomId, roomTopic, false));
+        return new MatchResult(roomId, sessionId, otherId, roomTopic);
     }
 
     private boolean shouldFallbackToAnyGender(UserProfile profile) {
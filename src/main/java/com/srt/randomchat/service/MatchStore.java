@@ -0,0 +1,92 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Room;
+import com.srt.randomchat.model.SessionState;
+import com.srt.randomchat.model.UserProfile;
+
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage for sessions, rooms and the matching pools. Implementations may be shared by several
+ * {@link MatchService} instances, so every mutation must be atomic on its own; in particular a
+ * pooled session can be claimed by at most one caller.
+ */
+public interface MatchStore {
+
+    enum Pool {
+        WAITING,
+        BOT
+    }
+
+    record Candidate(String sessionId, long order) {
+    }
+
+    /**
+     * Whether other {@link MatchService} instances may change the pools concurrently. Only then can
+     * a compatible session be queued between a scan and the caller queueing itself.
+     */
+    default boolean isShared() {
+        return false;
+    }
+
+    SessionState getSession(String sessionId);
+
+    /**
+     * Atomically replaces the state of a session. Returning {@link SessionState#isEmpty() an empty}
+     * state removes the session.
+     */
+    SessionState updateSession(String sessionId, UnaryOperator<SessionState> change);
+
+    Room getRoom(String roomId);
+
+    void putRoom(Room room);
+
+    Room removeRoom(String roomId);
+
+    int roomCount();
+
+    /**
+     * Queues a session behind everyone already waiting and returns its place in line.
+     */
+    long enqueue(Pool pool, String sessionId, UserProfile profile);
+
+    /**
+     * Queues a session again at a place in line returned by {@link #enqueue} or {@link #peekOldest},
+     * e.g. to undo a claim.
+     */
+    void reinstate(Pool pool, String sessionId, UserProfile profile, long order);
+
+    boolean dequeue(Pool pool, String sessionId);
+
+    /**
+     * Moves a queued session to the place for {@code profile} without changing how long it has
+     * waited. Returns false if the session is not queued in the pool.
+     */
+    boolean requeue(Pool pool, String sessionId, UserProfile profile);
+
+    boolean isQueued(Pool pool, String sessionId);
+
+    int poolSize(Pool pool);
+
+    Optional<Candidate> peekOldest(Pool pool,
+                                   String requesterId,
+                                   UserProfile requester,
+                                   BiPredicate<UserProfile, UserProfile> compatibility);
+
+    default boolean claim(Pool pool, String sessionId) {
+        return dequeue(pool, sessionId);
+    }
+
+    default Optional<String> claimOldest(Pool pool,
+                                         String requesterId,
+                                         UserProfile requester,
+                                         BiPredicate<UserProfile, UserProfile> compatibility) {
+        while (true) {
+            Optional<Candidate> candidate = peekOldest(pool, requesterId, requester, compatibility);
+            if (candidate.isEmpty()) return Optional.empty();
+            if (claim(pool, candidate.get().sessionId())) return Optional.of(candidate.get().sessionId());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Room;
+import com.srt.randomchat.model.SessionState;
+import com.srt.randomchat.model.UserProfile;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Spreads sessions and rooms over several node stores by consistent hashing. Matching peeks the
+ * oldest compatible candidate on every node and claims it atomically on its owner, retrying when
+ * another {@link MatchService} claimed it first.
+ * <p>
+ * This is not multi-node matching: the only node store is {@link InMemoryMatchStore}, and wait
+ * timers, listeners and connected counts stay per {@link MatchService}, so the store is only wired
+ * up by tests that run several services in one process.
+ */
+public class PartitionedMatchStore implements MatchStore {
+
+    private static final int VIRTUAL_NODES = 64;
+
+    private final List<MatchStore> nodes;
+    private final TreeMap<Integer, MatchStore> ring = new TreeMap<>();
+
+    public PartitionedMatchStore(List<? extends MatchStore> nodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("At least one node store is required.");
+        this.nodes = List.copyOf(nodes);
+        for (int i = 0; i < this.nodes.size(); i++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                ring.put(hash("node-" + i + "#" + v), this.nodes.get(i));
+            }
+        }
+    }
+
+    MatchStore ownerOf(String key) {
+        Map.Entry<Integer, MatchStore> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    @Override
+    public SessionState getSession(String sessionId) {
+        return ownerOf(sessionId).getSession(sessionId);
+    }
+
+    @Override
+    public SessionState updateSession(String sessionId, UnaryOperator<SessionState> change) {
+        return ownerOf(sessionId).updateSession(sessionId, change);
+    }
+
+    @Override
+    public Room getRoom(String roomId) {
+        return ownerOf(roomId).getRoom(roomId);
+    }
+
+    @Override
+    public void putRoom(Room room) {
+        ownerOf(room.roomId()).putRoom(room);
+    }
+
+    @Override
+    public Room removeRoom(String roomId) {
+        return ownerOf(roomId).removeRoom(roomId);
+    }
+
+    @Override
+    public int roomCount() {
+        int count = 0;
+        for (MatchStore node : nodes) count += node.roomCount();
+        return count;
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public long enqueue(Pool pool, String sessionId, UserProfile profile) {
+        return ownerOf(sessionId).enqueue(pool, sessionId, profile);
+    }
+
+    @Override
+    public void reinstate(Pool pool, String sessionId, UserProfile profile, long order) {
+        ownerOf(sessionId).reinstate(pool, sessionId, profile, order);
+    }
+
+    @Override
+    public boolean dequeue(Pool pool, String sessionId) {
+        return ownerOf(sessionId).dequeue(pool, sessionId);
+    }
+
+    @Override
+    public boolean requeue(Pool pool, String sessionId, UserProfile profile) {
+        return ownerOf(sessionId).requeue(pool, sessionId, profile);
+    }
+
+    @Override
+    public boolean isQueued(Pool pool, String sessionId) {
+        return ownerOf(sessionId).isQueued(pool, sessionId);
+    }
+
+    @Override
+    public int poolSize(Pool pool) {
+        int size = 0;
+        for (MatchStore node : nodes) size += node.poolSize(pool);
+        return size;
+    }
+
+    @Override
+    public Optional<Candidate> peekOldest(Pool pool,
+                                          String requesterId,
+                                          UserProfile requester,
+                                          BiPredicate<UserProfile, UserProfile> compatibility) {
+        Candidate oldest = null;
+        for (MatchStore node : nodes) {
+            Optional<Candidate> candidate = node.peekOldest(pool, requesterId, requester, compatibility);
+            if (candidate.isPresent() && (oldest == null || candidate.get().order() < oldest.order())) {
+                oldest = candidate.get();
+            }
+        }
+        return Optional.ofNullable(oldest);
+    }
+
+    @Override
+    public boolean claim(Pool pool, String sessionId) {
+        return ownerOf(sessionId).claim(pool, sessionId);
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
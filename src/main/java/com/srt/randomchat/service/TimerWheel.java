@@ -0,0 +1,118 @@
+package com.srt.randomchat.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timing wheel for large numbers of coarse timeouts. Each bucket is an intrusive doubly
+ * linked list, so scheduling and cancelling are O(1) and an advance only visits the buckets of
+ * the ticks that elapsed. Not thread-safe: the matcher thread owns it and drives {@link #advance}.
+ */
+final class TimerWheel {
+
+    static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private Timeout previous;
+        private Timeout next;
+        private int bucket = -1;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        boolean isPending() {
+            return bucket >= 0;
+        }
+    }
+
+    private final Timeout[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startedAt;
+    private long tick;
+    private int pending;
+
+    TimerWheel(long tickDuration, TimeUnit unit, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.buckets = new Timeout[size];
+        this.mask = size - 1;
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        this.startedAt = System.nanoTime();
+    }
+
+    Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        long ticks = Math.max(1, (unit.toNanos(delay) + tickNanos - 1) / tickNanos);
+        long now = (System.nanoTime() - startedAt) / tickNanos;
+        Timeout timeout = new Timeout(task, Math.max(tick, now) + ticks);
+        link(timeout, (int) (timeout.deadlineTick & mask));
+        return timeout;
+    }
+
+    /**
+     * Cancels a pending timeout. Returns false if it already ran or was cancelled.
+     */
+    boolean cancel(Timeout timeout) {
+        if (timeout == null || !timeout.isPending()) return false;
+        unlink(timeout);
+        return true;
+    }
+
+    int pending() {
+        return pending;
+    }
+
+    /**
+     * Runs every timeout whose deadline falls at or before {@code nowNanos}.
+     */
+    void advance(long nowNanos) {
+        long target = (nowNanos - startedAt) / tickNanos;
+        if (target < tick) return;
+        List<Timeout> expired = new ArrayList<>();
+        // After a long stall every bucket is visited once instead of once per missed tick.
+        for (long t = Math.max(tick, target - mask); t <= target; t++) {
+            Timeout timeout = buckets[(int) (t & mask)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= target) {
+                    unlink(timeout);
+                    expired.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+        tick = target + 1;
+        for (Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch (RuntimeException ex) {
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+            }
+        }
+    }
+
+    private void link(Timeout timeout, int bucket) {
+        Timeout head = buckets[bucket];
+        timeout.next = head;
+        if (head != null) head.previous = timeout;
+        buckets[bucket] = timeout;
+        timeout.bucket = bucket;
+        pending++;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) timeout.next.previous = timeout.previous;
+        timeout.previous = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+        pending--;
+    }
+}
@@ -0,0 +1,176 @@
+package com.srt.randomchat.bot;
+
+import com.srt.randomchat.RandomChatApplication;
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.service.MatchService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent bot conversations per node with platform threads and with virtual threads. The bot
+ * talks to a {@link StubOllama} that answers every generation after {@link #GENERATION_MS}. Each
+ * conversation is a WebSocket client in a bot room that sends its next message as soon as the
+ * previous reply arrives. Matchmaking pairs waiting users with each other before any bot handoff,
+ * so clients are placed in bot rooms through {@link MatchService#assignBotRoom}; everything after
+ * that runs through the STOMP endpoint. For a growing number of conversations the harness reports
+ * bot replies per second and reply latency over {@link #WINDOW_SECONDS}. Run with
+ * {@code gradle loadTest}.
+ */
+@Tag("load")
+class BotConcurrencyLoadTests {
+
+    private static final int[] CONVERSATIONS = {100, 300, 600};
+    private static final long GENERATION_MS = 500;
+    private static final int WINDOW_SECONDS = 10;
+
+    @Test
+    void platformVersusVirtualThreads() throws Exception {
+        List<String> rows = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            try (StubOllama ollama = new StubOllama(GENERATION_MS, 0)) {
+                measure(ollama, virtual, rows);
+            }
+        }
+        System.out.println("bot conversations, " + GENERATION_MS + " ms per generation, " + WINDOW_SECONDS + " s window");
+        System.out.println("  threads   conversations  replies/s  median ms  p95 ms  busy");
+        rows.forEach(System.out::println);
+    }
+
+    private void measure(StubOllama ollama, boolean virtual, List<String> rows) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RandomChatApplication.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--randomchat.bot.base-url=" + ollama.baseUrl(),
+                "--randomchat.bot.stream=false",
+                "--randomchat.bot.max-concurrent-replies=100000",
+                "--randomchat.bot.max-pending-replies=100000")) {
+            String url = "ws://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/ws";
+            MatchService matchService = context.getBean(MatchService.class);
+            WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+            client.setMessageConverter(new JacksonJsonMessageConverter());
+            Stats stats = new Stats();
+            List<Conversation> conversations = new ArrayList<>();
+            try {
+                for (int target : CONVERSATIONS) {
+                    while (conversations.size() < target) {
+                        conversations.add(new Conversation(client, url, matchService, stats));
+                    }
+                    // Settle after the ramp-up, then measure a fresh window.
+                    Thread.sleep(1000);
+                    stats.reset();
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(WINDOW_SECONDS));
+                    List<Long> latencies = new ArrayList<>(stats.latenciesMicros);
+                    Collections.sort(latencies);
+                    rows.add(String.format("  %-8s  %13d  %9d  %9d  %6d  %4d",
+                            virtual ? "virtual" : "platform",
+                            target,
+                            latencies.size() / WINDOW_SECONDS,
+                            percentile(latencies, 50) / 1000,
+                            percentile(latencies, 95) / 1000,
+                            stats.busy.sum()));
+                }
+            } finally {
+                conversations.forEach(Conversation::close);
+                client.stop();
+            }
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percent) {
+        if (sorted.isEmpty()) return 0;
+        return sorted.get(Math.min(sorted.size() - 1, sorted.size() * percent / 100));
+    }
+
+    private static final class Stats {
+        private final ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+        private final LongAdder busy = new LongAdder();
+
+        private void reset() {
+            latenciesMicros.clear();
+            busy.reset();
+        }
+    }
+
+    private static final class Conversation {
+        private final StompSession session;
+        private final Stats stats;
+        private final AtomicLong sentAt = new AtomicLong();
+        private final AtomicBoolean open = new AtomicBoolean(true);
+        private final String roomId;
+        private int sequence;
+
+        private Conversation(WebSocketStompClient client, String url, MatchService matchService, Stats stats) throws Exception {
+            this.stats = stats;
+            this.session = client.connectAsync(url, new StompSessionHandlerAdapter() { }).get(5, TimeUnit.SECONDS);
+            session.subscribe("/session/system", handler(payload -> {
+                if ("ERROR".equals(payload.get("type"))) stats.busy.increment();
+            }));
+            // The hello reply tells the client its server-side session id.
+            CompletableFuture<String> sessionId = new CompletableFuture<>();
+            session.subscribe("/session/hello", handler(payload -> sessionId.complete((String) payload.get("sessionId"))));
+            session.send("/app/hello", Map.of("clientId", "bot-load"));
+            String id = sessionId.get(5, TimeUnit.SECONDS);
+
+            matchService.register(id, Gender.MALE, Preference.FEMALE);
+            this.roomId = matchService.assignBotRoom(id).orElseThrow();
+            session.subscribe("/topic/room/" + roomId, handler(this::onRoomMessage));
+            send();
+        }
+
+        private void onRoomMessage(Map<?, ?> payload) {
+            if (!"anon-bot".equals(payload.get("senderId")) || payload.get("replyId") == null) return;
+            stats.latenciesMicros.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sentAt.get()));
+            send();
+        }
+
+        private synchronized void send() {
+            if (!open.get()) return;
+            sentAt.set(System.nanoTime());
+            session.send("/app/message", Map.of("roomId", roomId, "message", "message " + sequence++));
+        }
+
+        private void close() {
+            open.set(false);
+            session.disconnect();
+        }
+
+        private static StompFrameHandler handler(Consumer<Map<?, ?>> onPayload) {
+            return new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    onPayload.accept((Map<?, ?>) payload);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.srt.randomchat.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BotSchedulerTest {
+
+    @Test
+    void listenerOfASynchronousReplyRunsWithoutTheSessionLock() throws Exception {
+        BotProperties properties = new BotProperties();
+        properties.setEnabled(false);
+        MemoryManager memoryManager = new MemoryManager(properties);
+        BotService botService = new BotService(properties, null, memoryManager, null);
+        BotScheduler scheduler = new BotScheduler(botService, properties);
+
+        CompletableFuture<Void> cancelledFromAnotherThread = new CompletableFuture<>();
+        BotScheduler.Admission admission = scheduler.schedule("s1", "hi", new BotScheduler.Listener() {
+            @Override
+            public void onChunk(String chunk) {
+            }
+
+            @Override
+            public void onReply(String reply) {
+            }
+
+            @Override
+            public void onFailure() {
+                // Leaving the bot room cancels the session from another thread and waits for it.
+                try {
+                    CompletableFuture.runAsync(() -> scheduler.cancel("s1")).get(5, TimeUnit.SECONDS);
+                    cancelledFromAnotherThread.complete(null);
+                } catch (Exception ex) {
+                    cancelledFromAnotherThread.completeExceptionally(ex);
+                }
+            }
+
+            @Override
+            public void onBusy() {
+            }
+        });
+
+        assertEquals(BotScheduler.Admission.STARTED, admission);
+        cancelledFromAnotherThread.get(5, TimeUnit.SECONDS);
+        assertEquals(0, scheduler.getAdmitted());
+    }
+
+    @Test
+    void aTurnScheduledConcurrentlyWithCancelIsNeverOrphaned() throws Exception {
+        BotProperties properties = new BotProperties();
+        properties.setMaxPendingReplies(100_000);
+        Queue<CompletableFuture<String>> generations = new ConcurrentLinkedQueue<>();
+        BotService botService = new BotService(properties, null, new MemoryManager(properties), null) {
+            @Override
+            CompletableFuture<String> generateReply(String sessionId, String userMessage, Consumer<String> onChunk, BotTurn turn) {
+                CompletableFuture<String> generation = new CompletableFuture<>();
+                generations.add(generation);
+                return turn.track(generation);
+            }
+        };
+        BotScheduler scheduler = new BotScheduler(botService, properties);
+        LongAdder replies = new LongAdder();
+        BotScheduler.Listener listener = new BotScheduler.Listener() {
+            @Override
+            public void onChunk(String chunk) {
+            }
+
+            @Override
+            public void onReply(String reply) {
+                replies.increment();
+            }
+
+            @Override
+            public void onFailure() {
+            }
+
+            @Override
+            public void onBusy() {
+            }
+        };
+
+        int sessions = 50_000;
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < sessions; i++) {
+                String sessionId = "s" + i;
+                CountDownLatch go = new CountDownLatch(1);
+                CompletableFuture<?> schedule = CompletableFuture.runAsync(() -> {
+                    await(go);
+                    scheduler.schedule(sessionId, "hi", listener);
+                }, threads);
+                CompletableFuture<?> cancel = CompletableFuture.runAsync(() -> {
+                    await(go);
+                    scheduler.cancel(sessionId);
+                }, threads);
+                go.countDown();
+                CompletableFuture.allOf(schedule, cancel).get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+        // A schedule that ran after the racing cancel is still reachable, so this cancels it.
+        for (int i = 0; i < sessions; i++) {
+            scheduler.cancel("s" + i);
+        }
+        generations.forEach(generation -> generation.complete("reply"));
+
+        assertEquals(0, replies.sum());
+        assertEquals(0, scheduler.getAdmitted());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
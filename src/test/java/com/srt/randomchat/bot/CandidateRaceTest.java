@@ -0,0 +1,79 @@
+package com.srt.randomchat.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CandidateRaceTest {
+
+    @Test
+    void endsOnPerfectCandidateAndCancelsTheRest() {
+        CompletableFuture<String> a = new CompletableFuture<>();
+        CompletableFuture<String> b = new CompletableFuture<>();
+        CompletableFuture<String> c = new CompletableFuture<>();
+        CompletableFuture<String> picked = CandidateRace.race(List.of(a, b, c), String::length, 3, 60_000);
+
+        a.complete("x");
+        assertFalse(picked.isDone());
+        b.complete("xyz");
+
+        assertEquals("xyz", picked.join());
+        assertTrue(c.isCancelled());
+    }
+
+    @Test
+    void picksHighestScoreOnceAllFinish() {
+        CompletableFuture<String> a = new CompletableFuture<>();
+        CompletableFuture<String> b = new CompletableFuture<>();
+        CompletableFuture<String> c = new CompletableFuture<>();
+        CompletableFuture<String> picked = CandidateRace.race(List.of(a, b, c), String::length, 10, 60_000);
+
+        a.complete("xy");
+        b.completeExceptionally(new IllegalStateException("down"));
+        assertFalse(picked.isDone());
+        c.complete("z");
+
+        assertEquals("xy", picked.join());
+    }
+
+    @Test
+    void settlesForBestSoFarAfterDeadline() throws Exception {
+        CompletableFuture<String> a = new CompletableFuture<>();
+        CompletableFuture<String> b = new CompletableFuture<>();
+        CompletableFuture<String> picked = CandidateRace.race(List.of(a, b), String::length, 10, 0);
+
+        a.complete("xy");
+
+        assertEquals("xy", picked.get(5, TimeUnit.SECONDS));
+        assertTrue(b.isCancelled());
+    }
+
+    @Test
+    void completesWithNullWhenNoCandidateIsUsable() {
+        CompletableFuture<String> a = new CompletableFuture<>();
+        CompletableFuture<String> b = new CompletableFuture<>();
+        CompletableFuture<String> picked = CandidateRace.race(List.of(a, b), String::length, 10, 0);
+
+        a.complete(null);
+        b.completeExceptionally(new IllegalStateException("down"));
+
+        assertNull(picked.join());
+    }
+
+    @Test
+    void cancellingTheRaceCancelsCandidates() {
+        CompletableFuture<String> a = new CompletableFuture<>();
+        CompletableFuture<String> b = new CompletableFuture<>();
+        CandidateRace.race(List.of(a, b), String::length, 10, 60_000).cancel(true);
+
+        assertTrue(a.isCancelled());
+        assertTrue(b.isCancelled());
+    }
+}
@@ -0,0 +1,48 @@
+package com.srt.randomchat.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitTest {
+
+    @Test
+    void startsWaitersAsPermitsFreeUp() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(2);
+        List<CompletableFuture<String>> running = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(limit.submit(() -> {
+                CompletableFuture<String> task = new CompletableFuture<>();
+                running.add(task);
+                return task;
+            }));
+        }
+
+        assertEquals(2, running.size());
+        assertEquals(2, limit.inFlight());
+        assertEquals(2, limit.queued());
+
+        running.get(0).complete("a");
+        assertEquals("a", results.get(0).join());
+        assertEquals(3, running.size());
+        assertFalse(results.get(2).isDone());
+
+        running.get(1).completeExceptionally(new IllegalStateException("down"));
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertEquals(4, running.size());
+
+        running.get(2).complete("c");
+        running.get(3).complete("d");
+        assertEquals("c", results.get(2).join());
+        assertEquals("d", results.get(3).join());
+        assertEquals(0, limit.inFlight());
+        assertEquals(0, limit.queued());
+    }
+}
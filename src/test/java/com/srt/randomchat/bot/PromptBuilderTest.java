@@ -0,0 +1,30 @@
+package com.srt.randomchat.bot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PromptBuilderTest {
+
+    @Test
+    void turnPromptKeepsRoleFramingAndInstructionOutOfTheUserLine() {
+        BotProperties properties = new BotProperties();
+        BotIdentityManager identityManager = new BotIdentityManager();
+        MemoryManager memoryManager = new MemoryManager(properties);
+        PromptBuilder promptBuilder = new PromptBuilder(properties, identityManager, memoryManager);
+        String name = identityManager.getOrCreate("s1").name();
+        memoryManager.append("s1", "user", "hey");
+        memoryManager.append("s1", "bot", "hi there");
+
+        assertEquals("User: how are you\n" + name + ":",
+                promptBuilder.turnPrompt("s1", "how are you", false, false));
+        assertEquals(String.join("\n",
+                        "Make it a short question.",
+                        "Conversation so far:",
+                        "User: hey",
+                        name + ": hi there",
+                        "User: how are you",
+                        name + ":"),
+                promptBuilder.turnPrompt("s1", "how are you", true, true));
+    }
+}
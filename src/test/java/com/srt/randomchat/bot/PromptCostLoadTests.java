@@ -0,0 +1,76 @@
+package com.srt.randomchat.bot;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Prompt tokens and latency per bot turn with the full prompt replayed every turn and with
+ * incremental context. Conversations run through {@link BotService} and the real
+ * {@link OllamaClient} against a {@link StubOllama} that evaluates prompt tokens at
+ * {@link #MICROS_PER_PROMPT_TOKEN}, so the latency difference follows from the token difference.
+ * Run with {@code gradle loadTest}.
+ */
+@Tag("load")
+class PromptCostLoadTests {
+
+    private static final int CONVERSATIONS = 20;
+    private static final int TURNS = 24;
+    private static final long FIXED_DELAY_MS = 20;
+    private static final long MICROS_PER_PROMPT_TOKEN = 1000;
+    private static final List<String> MESSAGES = List.of(
+            "hey there, how is your evening going so far",
+            "what kind of music do you usually listen to",
+            "have you travelled anywhere nice this year",
+            "i just got back from work, long day honestly",
+            "do you prefer coffee or tea in the morning",
+            "what was the last movie you watched");
+
+    @Test
+    void fullPromptVersusIncrementalContext() throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (StubOllama ollama = new StubOllama(FIXED_DELAY_MS, MICROS_PER_PROMPT_TOKEN)) {
+            for (boolean incremental : new boolean[]{false, true}) {
+                OllamaClient.Stats stats = run(ollama, incremental);
+                rows.add(String.format("  %-11s  %8d  %13d  %10d",
+                        incremental ? "incremental" : "full",
+                        stats.requests(),
+                        stats.averagePromptTokens(),
+                        stats.averageLatencyMicros() / 1000));
+            }
+        }
+        System.out.println("prompt cost, " + CONVERSATIONS + " conversations x " + TURNS + " turns, "
+                + MICROS_PER_PROMPT_TOKEN + " us per prompt token");
+        System.out.println("  prompt       requests  prompt tokens  latency ms");
+        rows.forEach(System.out::println);
+    }
+
+    private OllamaClient.Stats run(StubOllama ollama, boolean incremental) {
+        BotProperties properties = new BotProperties();
+        properties.setBaseUrl(ollama.baseUrl());
+        properties.setStream(false);
+        properties.setIncrementalContext(incremental);
+        OllamaClient ollamaClient = new OllamaClient(properties, JsonMapper.builder().build());
+        MemoryManager memoryManager = new MemoryManager(properties);
+        PromptBuilder promptBuilder = new PromptBuilder(properties, new BotIdentityManager(), memoryManager);
+        BotService botService = new BotService(properties, ollamaClient, memoryManager, promptBuilder);
+
+        List<CompletableFuture<Void>> conversations = new ArrayList<>();
+        for (int c = 0; c < CONVERSATIONS; c++) {
+            String sessionId = "load-" + c;
+            CompletableFuture<Void> conversation = CompletableFuture.completedFuture(null);
+            for (int turn = 0; turn < TURNS; turn++) {
+                String message = MESSAGES.get((c + turn) % MESSAGES.size());
+                conversation = conversation.thenCompose(ignored -> botService.generateReply(sessionId, message))
+                        .thenAccept(reply -> { });
+            }
+            conversations.add(conversation);
+        }
+        CompletableFuture.allOf(conversations.toArray(CompletableFuture[]::new)).join();
+        return ollamaClient.getStats();
+    }
+}
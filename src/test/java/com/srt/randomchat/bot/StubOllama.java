@@ -0,0 +1,99 @@
+package com.srt.randomchat.bot;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ollama {@code /api/generate} stand-in for the load harnesses. Each reply takes a fixed delay
+ * plus a prompt evaluation time per evaluated token. Tokens are counted as words and punctuation
+ * marks and, as with a loaded Ollama model, tokens already in the request's context are not
+ * evaluated again. Every reply is a different short question, so the bot never retries.
+ */
+final class StubOllama implements AutoCloseable {
+
+    private static final Pattern TOKEN = Pattern.compile("\\w+|[^\\w\\s]");
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    // Platform threads, so the stub never competes with the application for virtual thread carriers.
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final HttpServer server;
+    private final long fixedDelayMicros;
+    private final long microsPerPromptToken;
+    private final AtomicLong replies = new AtomicLong();
+
+    StubOllama(long fixedDelayMs, long microsPerPromptToken) throws IOException {
+        this.fixedDelayMicros = TimeUnit.MILLISECONDS.toMicros(fixedDelayMs);
+        this.microsPerPromptToken = microsPerPromptToken;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(executor);
+        server.createContext("/api/generate", this::generate);
+        server.start();
+    }
+
+    String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    static int tokens(String text) {
+        if (text == null) return 0;
+        int count = 0;
+        Matcher matcher = TOKEN.matcher(text);
+        while (matcher.find()) count++;
+        return count;
+    }
+
+    private void generate(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Map<?, ?> request = jsonMapper.readValue(exchange.getRequestBody(), Map.class);
+            String system = (String) request.get("system");
+            String prompt = (String) request.get("prompt");
+            List<?> context = (List<?>) request.get("context");
+            int evaluated = tokens(prompt) + (context == null ? tokens(system) : 0);
+            try {
+                Thread.sleep(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(fixedDelayMicros + microsPerPromptToken * evaluated)));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            String reply = "reply " + replies.incrementAndGet() + " ok?";
+            int contextLength = (context == null ? tokens(system) : context.size()) + tokens(prompt) + tokens(reply);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("response", reply);
+            body.put("done", true);
+            body.put("context", new int[contextLength]);
+            body.put("prompt_eval_count", evaluated);
+            byte[] bytes = jsonMapper.writeValueAsBytes(body);
+            if (Boolean.TRUE.equals(request.get("stream"))) {
+                // One NDJSON line carrying the whole reply and the final fields.
+                bytes = (new String(bytes, StandardCharsets.UTF_8) + "\n").getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            // The JDK server drops idle connections beyond a small pool, which a reusing client sees as an empty response.
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+}
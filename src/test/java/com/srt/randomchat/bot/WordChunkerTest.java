@@ -0,0 +1,37 @@
+package com.srt.randomchat.bot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WordChunkerTest {
+
+    @Test
+    void flushesOnlyAtWordBoundaries() {
+        List<String> chunks = new ArrayList<>();
+        WordChunker chunker = new WordChunker(chunks::add);
+
+        for (String token : List.of(" Hel", "lo", " th", "ere", "! How", " are", " you?")) {
+            chunker.accept(token);
+        }
+        chunker.finish();
+
+        assertEquals(List.of("Hello ", "there! ", "How ", "are ", "you?"), chunks);
+        assertEquals("Hello there! How are you?", String.join("", chunks));
+    }
+
+    @Test
+    void dropsWhitespaceOnlyOutput() {
+        List<String> chunks = new ArrayList<>();
+        WordChunker chunker = new WordChunker(chunks::add);
+
+        chunker.accept("  ");
+        chunker.accept("\n");
+        chunker.finish();
+
+        assertEquals(List.of(), chunks);
+    }
+}
@@ -0,0 +1,97 @@
+package com.srt.randomchat.config;
+
+import com.srt.randomchat.messaging.Broadcaster;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "randomchat.broker.mode=relay",
+                "randomchat.broker.relay-host=127.0.0.1",
+                "randomchat.bot.enabled=false"
+        }
+)
+@DirtiesContext
+class BrokerRelayTests {
+
+    private static EmbeddedStompBroker artemis;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        artemis = EmbeddedStompBroker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        artemis.close();
+    }
+
+    // Read when the context starts, after the broker has bound its port.
+    @DynamicPropertySource
+    static void relayPort(DynamicPropertyRegistry registry) {
+        registry.add("randomchat.broker.relay-port", () -> artemis.port());
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Broadcaster broadcaster;
+
+    @Test
+    void roomTopicsAreFannedOutThroughTheRelay() throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new JacksonJsonMessageConverter());
+        StompSession session = client.connectAsync("ws://localhost:" + port + "/ws", new StompSessionHandlerAdapter() { })
+                .get(5, TimeUnit.SECONDS);
+
+        BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+        session.subscribe("/topic/room/relay-test", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<?, ?>) payload);
+            }
+        });
+
+        // The subscription reaches the broker asynchronously, so publish until it is delivered.
+        Map<?, ?> message = null;
+        for (int attempt = 0; attempt < 50 && message == null; attempt++) {
+            broadcaster.send("/topic/room/relay-test", Map.of("message", "hello"));
+            message = received.poll(100, TimeUnit.MILLISECONDS);
+        }
+
+        assertNotNull(message);
+        assertEquals("hello", message.get("message"));
+        session.disconnect();
+        client.stop();
+    }
+}
@@ -0,0 +1,144 @@
+package com.srt.randomchat.config;
+
+import com.srt.randomchat.RandomChatApplication;
+import com.srt.randomchat.messaging.Broadcaster;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Room fan-out throughput of the in-process simple broker against the relay to an embedded
+ * Artemis broker. Each round publishes {@link #MESSAGES} room messages through the
+ * {@link Broadcaster} to {@link #SUBSCRIBERS} WebSocket clients and times until every client has
+ * received all of them. Run with {@code gradle loadTest}.
+ */
+@Tag("load")
+class BrokerThroughputLoadTests {
+
+    private static final int SUBSCRIBERS = 20;
+    private static final int MESSAGES = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void simpleBrokerVersusRelay() throws Exception {
+        List<Long> simple = measure("simple", 0);
+        List<Long> relay;
+        try (EmbeddedStompBroker artemis = EmbeddedStompBroker.start()) {
+            relay = measure("relay", artemis.port());
+        }
+        System.out.printf("broker fan-out, %d subscribers x %d messages, deliveries/s per round%n", SUBSCRIBERS, MESSAGES);
+        System.out.println("  simple: " + simple);
+        System.out.println("  relay:  " + relay);
+    }
+
+    private List<Long> measure(String mode, int relayPort) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RandomChatApplication.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--randomchat.bot.enabled=false",
+                "--randomchat.messaging.slow-consumer-backlog=1000000",
+                "--randomchat.messaging.send-buffer-size-limit-kb=65536",
+                "--randomchat.broker.mode=" + mode,
+                "--randomchat.broker.relay-host=127.0.0.1",
+                "--randomchat.broker.relay-port=" + relayPort)) {
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            // The relay connects to Artemis in the background; clients are refused until it has.
+            Collection<AbstractBrokerMessageHandler> brokers = context.getBeansOfType(AbstractBrokerMessageHandler.class).values();
+            for (int attempt = 0; attempt < 100 && !brokers.stream().allMatch(AbstractBrokerMessageHandler::isBrokerAvailable); attempt++) {
+                Thread.sleep(100);
+            }
+            assertTrue(brokers.stream().allMatch(AbstractBrokerMessageHandler::isBrokerAvailable), "broker not available");
+            Broadcaster broadcaster = context.getBean(Broadcaster.class);
+            WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+            client.setMessageConverter(new JacksonJsonMessageConverter());
+            client.setInboundMessageSizeLimit(1024 * 1024);
+            try {
+                List<Long> rates = new ArrayList<>();
+                for (int round = 0; round <= ROUNDS; round++) {
+                    long rate = round(client, port, broadcaster, "/topic/room/bench-" + mode + "-" + round);
+                    // Round 0 warms up the JIT and connection pools.
+                    if (round > 0) rates.add(rate);
+                }
+                return rates;
+            } finally {
+                client.stop();
+            }
+        }
+    }
+
+    private long round(WebSocketStompClient client, int port, Broadcaster broadcaster, String topic) throws Exception {
+        CountDownLatch ready = new CountDownLatch(SUBSCRIBERS);
+        AtomicReference<CountDownLatch> delivered = new AtomicReference<>(new CountDownLatch(0));
+        List<StompSession> sessions = new ArrayList<>();
+        List<Throwable> transportErrors = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            StompSession session = client.connectAsync("ws://localhost:" + port + "/ws", new StompSessionHandlerAdapter() {
+                @Override
+                public void handleTransportError(StompSession session, Throwable exception) {
+                    transportErrors.add(exception);
+                }
+            }).get(5, TimeUnit.SECONDS);
+            AtomicBoolean seen = new AtomicBoolean();
+            session.subscribe(topic, new StompFrameHandler() {
+                @Override
+                public Type getPayloadType(StompHeaders headers) {
+                    return Map.class;
+                }
+
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    if (((Map<?, ?>) payload).containsKey("warmup")) {
+                        if (seen.compareAndSet(false, true)) ready.countDown();
+                    } else {
+                        delivered.get().countDown();
+                    }
+                }
+            });
+            sessions.add(session);
+        }
+
+        // Subscriptions reach the broker asynchronously, so publish probes until all are live.
+        for (int attempt = 0; attempt < 100 && ready.getCount() > 0; attempt++) {
+            broadcaster.send(topic, Map.of("warmup", true));
+            ready.await(100, TimeUnit.MILLISECONDS);
+        }
+        assertTrue(ready.await(0, TimeUnit.MILLISECONDS), "subscriptions not live");
+        Thread.sleep(200);
+
+        CountDownLatch all = new CountDownLatch(SUBSCRIBERS * MESSAGES);
+        delivered.set(all);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            broadcaster.send(topic, Map.of("sender", "bench", "message", "message " + i));
+        }
+        assertTrue(all.await(60, TimeUnit.SECONDS),
+                "deliveries missing: " + all.getCount() + ", transport errors: " + transportErrors);
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        sessions.forEach(StompSession::disconnect);
+        return SUBSCRIBERS * (long) MESSAGES * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+}
@@ -0,0 +1,43 @@
+package com.srt.randomchat.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.remoting.impl.netty.NettyAcceptor;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+
+/**
+ * In-process Artemis broker with a STOMP acceptor, so the broker relay can be tested offline.
+ * Addresses under {@code /topic/} are multicast, matching the SimpleBroker's topic semantics.
+ * The acceptor binds an ephemeral port, read back through {@link #port()}.
+ */
+public final class EmbeddedStompBroker implements AutoCloseable {
+
+    private static final String ACCEPTOR = "stomp";
+
+    private final EmbeddedActiveMQ broker;
+
+    private EmbeddedStompBroker(EmbeddedActiveMQ broker) {
+        this.broker = broker;
+    }
+
+    public static EmbeddedStompBroker start() throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.addAcceptorConfiguration(ACCEPTOR,
+                "tcp://127.0.0.1:0?protocols=STOMP;multicastPrefix=/topic/");
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+        return new EmbeddedStompBroker(broker);
+    }
+
+    public int port() {
+        NettyAcceptor acceptor = (NettyAcceptor) broker.getActiveMQServer().getRemotingService().getAcceptor(ACCEPTOR);
+        return acceptor.getActualPort();
+    }
+
+    @Override
+    public void close() throws Exception {
+        broker.stop();
+    }
+}
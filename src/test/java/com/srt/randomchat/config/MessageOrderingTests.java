@@ -0,0 +1,112 @@
+package com.srt.randomchat.config;
+
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.service.MatchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "spring.threads.virtual.enabled=true",
+                "randomchat.bot.enabled=false",
+                "randomchat.messaging.message-rate-limit.per-second=0"
+        }
+)
+class MessageOrderingTests {
+
+    private static final int MESSAGES = 500;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MatchService matchService;
+
+    @Test
+    void backToBackRoomMessagesArriveInOrder() throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+        client.setMessageConverter(new JacksonJsonMessageConverter());
+        StompSession sender = connect(client);
+        StompSession receiver = connect(client);
+        String senderId = hello(sender);
+        String receiverId = hello(receiver);
+        matchService.register(senderId, Gender.MALE, Preference.FEMALE);
+        matchService.register(receiverId, Gender.FEMALE, Preference.MALE);
+        matchService.requestMatch(senderId);
+        String roomId = matchService.requestMatch(receiverId).orElseThrow().matchResult().roomId();
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        receiver.subscribe("/topic/room/" + roomId, handler(payload -> received.add((String) payload.get("message"))));
+        // The receiver's own frames are handled in order, so its subscription is in place once its message comes back.
+        receiver.send("/app/message", Map.of("roomId", roomId, "message", "ready"));
+        assertEquals("ready", received.poll(5, TimeUnit.SECONDS));
+
+        List<String> sent = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            sent.add("message " + i);
+            sender.send("/app/message", Map.of("roomId", roomId, "message", "message " + i));
+        }
+        List<String> arrived = new ArrayList<>();
+        for (int i = 0; i < MESSAGES; i++) {
+            String message = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            arrived.add(message);
+        }
+        assertEquals(sent, arrived);
+
+        sender.disconnect();
+        receiver.disconnect();
+        client.stop();
+    }
+
+    private StompSession connect(WebSocketStompClient client) throws Exception {
+        return client.connectAsync("ws://localhost:" + port + "/ws", new StompSessionHandlerAdapter() { })
+                .get(5, TimeUnit.SECONDS);
+    }
+
+    // The hello reply tells the client its server-side session id.
+    private static String hello(StompSession session) throws Exception {
+        CompletableFuture<String> sessionId = new CompletableFuture<>();
+        session.subscribe("/session/hello", handler(payload -> sessionId.complete((String) payload.get("sessionId"))));
+        session.send("/app/hello", Map.of("clientId", "ordering-test"));
+        return sessionId.get(5, TimeUnit.SECONDS);
+    }
+
+    private static StompFrameHandler handler(Consumer<Map<?, ?>> onPayload) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                onPayload.accept((Map<?, ?>) payload);
+            }
+        };
+    }
+}
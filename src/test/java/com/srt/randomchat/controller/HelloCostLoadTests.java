@@ -0,0 +1,122 @@
+package com.srt.randomchat.controller;
+
+import com.srt.randomchat.RandomChatApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.JacksonJsonMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cost of a connect and its {@code /app/hello} as the number of connected users grows, on the
+ * in-process broker. At each population size fresh clients connect, subscribe to
+ * {@code /session/hello} and send a hello; the harness reports the median connect and hello
+ * round-trip times and how many frames the already connected users received meanwhile. Run with
+ * {@code gradle loadTest}.
+ */
+@Tag("load")
+class HelloCostLoadTests {
+
+    private static final int[] POPULATIONS = {0, 100, 300, 600};
+    private static final int PROBES = 50;
+
+    @Test
+    void helloCostStaysFlatAsUsersGrow() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RandomChatApplication.class).run(
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--randomchat.bot.enabled=false",
+                "--randomchat.messaging.online-count-interval-ms=3600000")) {
+            String url = "ws://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/ws";
+            WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
+            client.setMessageConverter(new JacksonJsonMessageConverter());
+            List<StompSession> connected = new ArrayList<>();
+            LongAdder framesToOthers = new LongAdder();
+            try {
+                // Warm-up, not reported.
+                for (int i = 0; i < PROBES; i++) {
+                    probe(client, url, null).session().disconnect();
+                }
+                System.out.println("hello cost, " + PROBES + " probes per population, medians in microseconds");
+                System.out.println("  users  connect  hello  frames to other users");
+                for (int population : POPULATIONS) {
+                    while (connected.size() < population) {
+                        connected.add(probe(client, url, framesToOthers).session());
+                    }
+                    framesToOthers.reset();
+                    List<Long> connects = new ArrayList<>();
+                    List<Long> hellos = new ArrayList<>();
+                    for (int i = 0; i < PROBES; i++) {
+                        Probe probe = probe(client, url, null);
+                        connects.add(probe.connectMicros());
+                        hellos.add(probe.helloMicros());
+                        probe.session().disconnect();
+                    }
+                    System.out.printf("  %5d  %7d  %5d  %d%n",
+                            population, median(connects), median(hellos), framesToOthers.sum());
+                    assertEquals(0, framesToOthers.sum());
+                }
+            } finally {
+                connected.forEach(StompSession::disconnect);
+                client.stop();
+            }
+        }
+    }
+
+    private record Probe(StompSession session, long connectMicros, long helloMicros) {
+    }
+
+    // Connects, subscribes to /session/hello and says hello. Any later frame on that subscription is counted in framesAfter.
+    private Probe probe(WebSocketStompClient client, String url, LongAdder framesAfter) throws Exception {
+        long startedAt = System.nanoTime();
+        StompSession session = client.connectAsync(url, new StompSessionHandlerAdapter() { }).get(5, TimeUnit.SECONDS);
+        long connectedAt = System.nanoTime();
+
+        String clientId = "probe-" + System.nanoTime();
+        CompletableFuture<Long> answered = new CompletableFuture<>();
+        session.subscribe("/session/hello", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                if (!answered.isDone() && clientId.equals(((Map<?, ?>) payload).get("clientId"))) {
+                    answered.complete(System.nanoTime());
+                } else if (framesAfter != null) {
+                    framesAfter.increment();
+                }
+            }
+        });
+        long sentAt = System.nanoTime();
+        session.send("/app/hello", Map.of("clientId", clientId));
+        long answeredAt = answered.get(5, TimeUnit.SECONDS);
+        return new Probe(session, TimeUnit.NANOSECONDS.toMicros(connectedAt - startedAt),
+                TimeUnit.NANOSECONDS.toMicros(answeredAt - sentAt));
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
@@ -0,0 +1,44 @@
+package com.srt.randomchat.messaging;
+
+import com.srt.randomchat.service.MatchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OnlineCountPublisherTest {
+
+    @Test
+    void failedPublishIsRetriedOnTheNextRun() {
+        AtomicBoolean brokerDown = new AtomicBoolean(true);
+        List<Message<?>> sent = new CopyOnWriteArrayList<>();
+        MessageChannel brokerChannel = (message, timeout) -> {
+            if (brokerDown.get()) throw new MessageDeliveryException(message, "broker unavailable");
+            return sent.add(message);
+        };
+        Broadcaster broadcaster = new Broadcaster(new SimpMessagingTemplate(brokerChannel), brokerChannel,
+                new SessionSubscriptions(), JsonMapper.builder().build());
+        MessagingProperties properties = new MessagingProperties();
+        properties.setOnlineCountIntervalMs(3_600_000);
+        OnlineCountPublisher publisher = new OnlineCountPublisher(new MatchService(), broadcaster, properties);
+        try {
+            publisher.publishIfChanged();
+            assertEquals(0, sent.size());
+
+            brokerDown.set(false);
+            publisher.publishIfChanged();
+            publisher.publishIfChanged();
+            assertEquals(1, sent.size());
+        } finally {
+            publisher.shutdown();
+        }
+    }
+}
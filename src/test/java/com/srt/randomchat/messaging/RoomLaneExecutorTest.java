@@ -0,0 +1,87 @@
+package com.srt.randomchat.messaging;
+
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.service.MatchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomLaneExecutorTest {
+
+    @Test
+    void framesQueuedBeforeAMatchRunBeforeLaterRoomFrames() throws InterruptedException {
+        MatchService matchService = new MatchService();
+        ExecutorService backing = Executors.newCachedThreadPool();
+        RoomLaneExecutor executor = new RoomLaneExecutor(matchService, backing, 1024);
+        List<String> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            executor.execute(frame("a", () -> {
+                await(release);
+                handled.add("before match");
+            }));
+
+            matchService.register("a", Gender.MALE, Preference.FEMALE);
+            matchService.register("b", Gender.FEMALE, Preference.MALE);
+            matchService.requestMatch("a");
+            assertTrue(matchService.requestMatch("b").isPresent());
+            executor.execute(frame("a", () -> {
+                handled.add("in room");
+                done.countDown();
+            }));
+
+            assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("before match", "in room"), handled);
+        } finally {
+            backing.shutdownNow();
+        }
+    }
+
+    private static MessageHandlingRunnable frame(String sessionId, Runnable handling) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setSessionId(sessionId);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return received -> handling.run();
+            }
+
+            @Override
+            public void run() {
+                handling.run();
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.srt.randomchat.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(2, 3);
+        AtomicLongArray arrivals = new AtomicLongArray(1);
+        long now = 10 * SECOND;
+
+        assertTrue(bucket.tryAcquire(arrivals, 0, now));
+        assertTrue(bucket.tryAcquire(arrivals, 0, now));
+        assertTrue(bucket.tryAcquire(arrivals, 0, now));
+        assertFalse(bucket.tryAcquire(arrivals, 0, now));
+
+        assertFalse(bucket.tryAcquire(arrivals, 0, now + SECOND / 4));
+        assertTrue(bucket.tryAcquire(arrivals, 0, now + SECOND / 2));
+        assertFalse(bucket.tryAcquire(arrivals, 0, now + SECOND / 2));
+
+        assertTrue(bucket.tryAcquire(arrivals, 0, now + 5 * SECOND));
+        assertTrue(bucket.tryAcquire(arrivals, 0, now + 5 * SECOND));
+        assertTrue(bucket.tryAcquire(arrivals, 0, now + 5 * SECOND));
+        assertFalse(bucket.tryAcquire(arrivals, 0, now + 5 * SECOND));
+    }
+
+    @Test
+    void slotsAreIndependentAndZeroRateIsUnlimited() {
+        TokenBucket limited = new TokenBucket(1, 1);
+        TokenBucket unlimited = new TokenBucket(0, 1);
+        AtomicLongArray arrivals = new AtomicLongArray(2);
+
+        assertTrue(limited.tryAcquire(arrivals, 0, SECOND));
+        assertFalse(limited.tryAcquire(arrivals, 0, SECOND));
+        assertTrue(limited.tryAcquire(arrivals, 1, SECOND));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(unlimited.tryAcquire(arrivals, 0, 2 * SECOND));
+        }
+    }
+}
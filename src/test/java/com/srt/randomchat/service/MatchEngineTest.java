@@ -0,0 +1,34 @@
+package com.srt.randomchat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MatchEngineTest {
+
+    @Test
+    void errorFailsOnlyItsCommandAndQueuedCommandsWaitForStart() {
+        MatchEngine engine = new MatchEngine("matcher-test");
+        CompletableFuture<String> failing = engine.submit(() -> {
+            throw new AssertionError("bug");
+        });
+        CompletableFuture<String> next = engine.submit(() -> "still running");
+        assertFalse(next.isDone());
+
+        engine.start();
+        try {
+            CompletionException error = assertThrows(CompletionException.class, failing::join);
+            assertInstanceOf(AssertionError.class, error.getCause());
+            assertEquals("still running", next.join());
+            assertEquals("again", engine.submit(() -> "again").join());
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
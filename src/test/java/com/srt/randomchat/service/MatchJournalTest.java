@@ -0,0 +1,62 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.MatchOutcome;
+import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.model.SessionState;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchJournalTest {
+
+    private static MatchProperties journaled(Path directory) {
+        MatchProperties properties = new MatchProperties();
+        properties.setJournalEnabled(true);
+        properties.setJournalPath(directory.toString());
+        properties.setJournalSizeMb(1);
+        properties.setDisconnectGraceSeconds(0);
+        return properties;
+    }
+
+    @Test
+    void restartRestoresRoomsAndReattachesReconnectedSessions() throws IOException {
+        Path directory = Files.createTempDirectory("match-journal");
+        MatchService before = new MatchService(journaled(directory), new InMemoryMatchStore());
+        before.register("a", Gender.MALE, Preference.FEMALE);
+        String tokenA = before.getSession("a").orElseThrow().resumeToken();
+        before.register("b", Gender.FEMALE, Preference.MALE);
+        before.register("c", Gender.MALE, Preference.BOTH);
+        before.requestMatch("a");
+        MatchOutcome outcome = before.requestMatch("b").orElseThrow();
+        before.handleDisconnect("c");
+        before.closeJournal();
+        before.handleDisconnect("a");
+        before.shutdown();
+
+        MatchService after = new MatchService(journaled(directory), new InMemoryMatchStore());
+        String roomId = outcome.matchResult().roomId();
+        assertEquals(roomId, after.getRoom("a").orElseThrow());
+        assertFalse(after.isRegistered("c"));
+        assertFalse(after.resume("not-a-token", "a2").isPresent());
+
+        SessionState resumed = after.resume(tokenA, "a2").orElseThrow();
+        assertEquals(roomId, resumed.roomId());
+        assertTrue(after.isInRoom(roomId, "a2"));
+        assertFalse(after.isRegistered("a"));
+        assertNotEquals(tokenA, resumed.resumeToken());
+        after.shutdown();
+
+        MatchService again = new MatchService(journaled(directory), new InMemoryMatchStore());
+        assertEquals(roomId, again.getRoom("a2").orElseThrow());
+        assertTrue(again.isInRoom(roomId, "b"));
+        again.shutdown();
+    }
+}
@@ -3,8 +3,17 @@ package com.srt.randomchat.service;
 import com.srt.randomchat.model.Gender;
 import com.srt.randomchat.model.MatchOutcome;
 import com.srt.randomchat.model.Preference;
+import com.srt.randomchat.model.SessionState;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -36,4 +45,255 @@ class MatchServiceTest {
         assertFalse(service.getRoom("a").isPresent());
         assertFalse(service.getRoom("b").isPresent());
     }
+
+    @Test
+    void oldestCompatibleWaiterWinsAcrossBuckets() {
+        MatchService service = new MatchService();
+        service.register("a", Gender.FEMALE, Preference.MALE);
+        service.register("b", Gender.FEMALE, Preference.BOTH);
+        service.register("c", Gender.MALE, Preference.FEMALE);
+
+        assertTrue(service.requestMatch("a").isEmpty());
+        assertTrue(service.requestMatch("b").isEmpty());
+        MatchOutcome outcome = service.requestMatch("c").orElse(null);
+
+        assertNotNull(outcome);
+        assertEquals("a", outcome.matchResult().sessionB());
+        assertEquals(1, service.getStats().waitingCount());
+    }
+
+    @Test
+    void fallsBackToAnyGenderWhenNoStrictMatch() {
+        MatchService service = new MatchService();
+        service.register("a", Gender.MALE, Preference.MALE);
+        service.register("b", Gender.MALE, Preference.FEMALE);
+
+        assertTrue(service.requestMatch("a").isEmpty());
+        MatchOutcome outcome = service.requestMatch("b").orElse(null);
+
+        assertNotNull(outcome);
+        assertEquals("a", outcome.matchResult().sessionB());
+        assertEquals(0, service.getStats().waitingCount());
+    }
+
+    @Test
+    void concurrentRequestsPairEveryoneExactlyOnce() {
+        MatchService service = new MatchService();
+        int users = 200;
+        for (int i = 0; i < users; i++) {
+            service.register("s" + i, i % 2 == 0 ? Gender.MALE : Gender.FEMALE, Preference.BOTH);
+        }
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String sessionId = "s" + i;
+            requests.add(CompletableFuture.runAsync(() -> service.requestMatch(sessionId)));
+        }
+        requests.forEach(CompletableFuture::join);
+
+        assertEquals(0, service.getStats().waitingCount());
+        assertEquals(users / 2, service.getStats().activeRooms());
+        for (int i = 0; i < users; i++) {
+            assertTrue(service.getRoom("s" + i).isPresent());
+        }
+    }
+
+    @Test
+    void tickModeMatchesQueuedRequestsOnTick() throws InterruptedException {
+        MatchProperties properties = new MatchProperties();
+        properties.setMode(MatchProperties.Mode.TICK);
+        properties.setTickIntervalMs(20);
+        MatchService service = new MatchService(properties, new InMemoryMatchStore());
+        List<MatchOutcome> matched = new CopyOnWriteArrayList<>();
+        CountDownLatch pairs = new CountDownLatch(2);
+        service.setListener(outcomes -> {
+            matched.addAll(outcomes);
+            outcomes.forEach(outcome -> pairs.countDown());
+        });
+
+        for (int i = 0; i < 4; i++) {
+            service.register("s" + i, Gender.FEMALE, Preference.BOTH);
+            assertTrue(service.requestMatch("s" + i).isEmpty());
+        }
+
+        assertTrue(pairs.await(2, TimeUnit.SECONDS));
+        assertEquals(2, matched.size());
+        assertEquals(2, service.getTickStats().totalPairs());
+        assertEquals(0, service.getStats().waitingCount());
+    }
+
+    @Test
+    void tickModeCountsARepeatedRequestFromThePoolOnce() throws InterruptedException {
+        MatchProperties properties = new MatchProperties();
+        properties.setMode(MatchProperties.Mode.TICK);
+        properties.setTickIntervalMs(20);
+        InMemoryMatchStore store = new InMemoryMatchStore();
+        MatchService service = new MatchService(properties, store);
+        service.register("a", Gender.FEMALE, Preference.BOTH);
+        service.requestMatch("a");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (!store.isQueued(MatchStore.Pool.WAITING, "a") && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(store.isQueued(MatchStore.Pool.WAITING, "a"));
+
+        service.requestMatch("a");
+        assertEquals(1, service.getStats().waitingCount());
+    }
+
+    @Test
+    void takesOverLongestRunningCompatibleBotRoom() {
+        MatchService service = new MatchService();
+        service.register("a", Gender.FEMALE, Preference.BOTH);
+        service.register("b", Gender.FEMALE, Preference.BOTH);
+        service.register("c", Gender.MALE, Preference.FEMALE);
+        String roomA = service.assignBotRoom("a").orElseThrow();
+        service.assignBotRoom("b").orElseThrow();
+
+        MatchOutcome outcome = service.requestMatch("c").orElse(null);
+
+        assertNotNull(outcome);
+        assertEquals("a", outcome.replacedSessionId());
+        assertEquals(roomA, outcome.replacedRoomId());
+        assertFalse(service.isBotRoom(service.getRoom("a").orElseThrow()));
+        assertTrue(service.isBotRoom(service.getRoom("b").orElseThrow()));
+    }
+
+    @Test
+    void reRegisteringKeepsPlaceInLine() {
+        MatchService service = new MatchService();
+        service.register("a", Gender.FEMALE, Preference.BOTH);
+        service.register("b", Gender.FEMALE, Preference.BOTH);
+        service.register("c", Gender.MALE, Preference.FEMALE);
+        service.assignBotRoom("a").orElseThrow();
+        service.assignBotRoom("b").orElseThrow();
+        service.register("a", Gender.FEMALE, Preference.MALE);
+
+        MatchOutcome outcome = service.requestMatch("c").orElse(null);
+
+        assertNotNull(outcome);
+        assertEquals("a", outcome.replacedSessionId());
+    }
+
+    @Test
+    void sessionSnapshotTracksLifecycle() {
+        MatchProperties properties = new MatchProperties();
+        properties.setDisconnectGraceSeconds(0);
+        MatchService service = new MatchService(properties, new InMemoryMatchStore());
+        service.registerConnected("a");
+        service.register("a", Gender.MALE, Preference.BOTH);
+        service.register("b", Gender.FEMALE, Preference.BOTH);
+        service.requestMatch("a");
+        assertTrue(service.getSession("a").orElseThrow().waiting());
+
+        service.requestMatch("b");
+        SessionState state = service.getSession("a").orElseThrow();
+        assertTrue(state.connected());
+        assertFalse(state.waiting());
+        assertEquals(service.getRoom("b").orElseThrow(), state.roomId());
+        assertEquals(1, service.getConnectedCount());
+
+        assertEquals("b", service.handleDisconnect("a").orElseThrow());
+        assertTrue(service.getSession("a").isEmpty());
+        assertFalse(service.getSession("b").orElseThrow().inRoom());
+        assertEquals(0, service.getConnectedCount());
+        assertEquals(1, service.getStats().registeredCount());
+    }
+
+    @Test
+    void disconnectedSessionKeepsRoomUntilGraceExpires() throws InterruptedException {
+        MatchProperties properties = new MatchProperties();
+        properties.setDisconnectGraceSeconds(1);
+        MatchService service = new MatchService(properties, new InMemoryMatchStore());
+        CountDownLatch partnerLeft = new CountDownLatch(1);
+        service.setListener(new MatchListener() {
+            @Override
+            public void onMatched(List<MatchOutcome> outcomes) {
+            }
+
+            @Override
+            public void onPartnerLeft(String sessionId, String roomId) {
+                if (sessionId.equals("b2")) partnerLeft.countDown();
+            }
+        });
+        service.register("a", Gender.MALE, Preference.BOTH);
+        service.register("b", Gender.FEMALE, Preference.BOTH);
+        service.requestMatch("a");
+        String roomId = service.requestMatch("b").orElseThrow().matchResult().roomId();
+        String tokenB = service.getSession("b").orElseThrow().resumeToken();
+
+        assertTrue(service.handleDisconnect("a").isEmpty());
+        assertTrue(service.handleDisconnect("b").isEmpty());
+        assertTrue(service.requestMatch("a").isEmpty());
+        assertEquals(roomId, service.getRoom("a").orElseThrow());
+
+        SessionState resumed = service.resume(tokenB, "b2").orElseThrow();
+        assertEquals(roomId, resumed.roomId());
+        assertTrue(service.isInRoom(roomId, "b2"));
+        assertFalse(service.resume(tokenB, "b3").isPresent());
+
+        assertTrue(partnerLeft.await(3, TimeUnit.SECONDS));
+        assertFalse(service.isRegistered("a"));
+        assertFalse(service.getSession("b2").orElseThrow().inRoom());
+    }
+
+    @Test
+    void longWaitHandsOffToBot() throws InterruptedException {
+        MatchProperties properties = new MatchProperties();
+        properties.setBotHandoffSeconds(1);
+        MatchService service = new MatchService(properties, new InMemoryMatchStore());
+        CountDownLatch handedOff = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        service.setListener(new MatchListener() {
+            @Override
+            public void onMatched(List<MatchOutcome> outcomes) {
+            }
+
+            @Override
+            public void onBotHandoffDue(String sessionId) {
+                threads.add(Thread.currentThread().getName());
+                service.handOffToBot(sessionId);
+                handedOff.countDown();
+            }
+        });
+        service.register("a", Gender.MALE, Preference.FEMALE);
+        service.requestMatch("a");
+
+        assertTrue(handedOff.await(3, TimeUnit.SECONDS));
+        assertEquals(List.of("match-events"), threads);
+        assertTrue(service.isBotRoom(service.getRoom("a").orElseThrow()));
+        assertEquals(0, service.getStats().waitingCount());
+    }
+
+    @Test
+    void staleWaitersExpireAndCancelledSearchesDoNot() throws InterruptedException {
+        MatchProperties properties = new MatchProperties();
+        properties.setBotHandoffSeconds(0);
+        properties.setWaitingTimeoutSeconds(1);
+        MatchService service = new MatchService(properties, new InMemoryMatchStore());
+        List<String> expired = new CopyOnWriteArrayList<>();
+        CountDownLatch expiredLatch = new CountDownLatch(1);
+        service.setListener(new MatchListener() {
+            @Override
+            public void onMatched(List<MatchOutcome> outcomes) {
+            }
+
+            @Override
+            public void onSearchExpired(String sessionId) {
+                expired.add(sessionId);
+                expiredLatch.countDown();
+            }
+        });
+        service.register("a", Gender.MALE, Preference.FEMALE);
+        service.requestMatch("a");
+        service.cancelSearch("a");
+        service.register("b", Gender.MALE, Preference.FEMALE);
+        service.requestMatch("b");
+
+        assertTrue(expiredLatch.await(3, TimeUnit.SECONDS));
+        assertEquals(List.of("b"), expired);
+        assertFalse(service.getSession("b").orElseThrow().waiting());
+        assertEquals(0, service.getStats().waitingCount());
+    }
 }
@@ -0,0 +1,81 @@
+package com.srt.randomchat.service;
+
+import com.srt.randomchat.model.Gender;
+import com.srt.randomchat.model.MatchOutcome;
+import com.srt.randomchat.model.Preference;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedMatchStoreTest {
+
+    private static List<InMemoryMatchStore> nodes(int count) {
+        List<InMemoryMatchStore> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) nodes.add(new InMemoryMatchStore());
+        return nodes;
+    }
+
+    @Test
+    void matchesSessionsRegisteredOnDifferentInstances() {
+        List<InMemoryMatchStore> nodes = nodes(3);
+        MatchService first = new MatchService(new MatchProperties(), new PartitionedMatchStore(nodes));
+        MatchService second = new MatchService(new MatchProperties(), new PartitionedMatchStore(nodes));
+
+        first.register("a", Gender.MALE, Preference.FEMALE);
+        second.register("b", Gender.FEMALE, Preference.MALE);
+
+        assertTrue(first.requestMatch("a").isEmpty());
+        MatchOutcome outcome = second.requestMatch("b").orElse(null);
+
+        assertNotNull(outcome);
+        assertEquals("a", outcome.matchResult().sessionB());
+        assertEquals(outcome.matchResult().roomId(), first.getRoom("a").orElseThrow());
+    }
+
+    @Test
+    void concurrentInstancesNeverClaimTheSameSession() {
+        List<InMemoryMatchStore> nodes = nodes(4);
+        List<MatchService> instances = List.of(
+                new MatchService(new MatchProperties(), new PartitionedMatchStore(nodes)),
+                new MatchService(new MatchProperties(), new PartitionedMatchStore(nodes)),
+                new MatchService(new MatchProperties(), new PartitionedMatchStore(nodes))
+        );
+        int users = 300;
+        for (int i = 0; i < users; i++) {
+            instances.get(i % instances.size()).register("s" + i, Gender.FEMALE, Preference.BOTH);
+        }
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            MatchService instance = instances.get(i % instances.size());
+            String sessionId = "s" + i;
+            requests.add(CompletableFuture.runAsync(() -> instance.requestMatch(sessionId)));
+        }
+        requests.forEach(CompletableFuture::join);
+
+        MatchService any = instances.get(0);
+        Set<String> rooms = new HashSet<>();
+        int waiting = 0;
+        for (int i = 0; i < users; i++) {
+            String sessionId = "s" + i;
+            String roomId = any.getRoom(sessionId).orElse(null);
+            if (roomId == null) {
+                waiting++;
+                continue;
+            }
+            assertTrue(any.isInRoom(roomId, sessionId));
+            rooms.add(roomId);
+        }
+        assertEquals(users - waiting, rooms.size() * 2);
+        assertEquals(waiting, any.getStats().waitingCount());
+        assertTrue(waiting <= 1);
+    }
+}